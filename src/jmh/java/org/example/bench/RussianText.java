@@ -0,0 +1,52 @@
+package org.example.bench;
+
+import org.example.io.FileManager;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Детерминированный генератор русского текста для бенчмарков: слова из фиксированного словаря,
+ * знаки препинания и переводы строк. Одинаковое зерно даёт одинаковый текст на любой машине.
+ */
+public final class RussianText {
+
+    private static final String[] WORDS = {
+            "в", "и", "не", "на", "я", "быть", "он", "с", "что", "а", "по", "это", "она", "этот",
+            "к", "но", "они", "мы", "как", "из", "у", "который", "то", "за", "свой", "весь", "год",
+            "от", "так", "о", "для", "ты", "же", "все", "тот", "мочь", "вы", "человек", "такой",
+            "его", "сказать", "только", "или", "ещё", "бы", "себя", "один", "когда", "уже", "время",
+            "если", "да", "нет", "рука", "при", "ничто", "жизнь", "дело", "глаз", "день", "друг",
+            "говорить", "первый", "каждый", "стать", "новый", "город", "работа", "слово", "место",
+            "лицо", "дом", "вопрос", "сторона", "страна", "мир", "случай", "голова", "ребёнок",
+            "сила", "конец", "вид", "система", "часть", "образ", "земля", "лес", "дорога", "утро"
+    };
+
+    private static final String[] PUNCTUATION = {
+            " ", " ", " ", " ", " ", " ", " ", " ", ", ", ". ", "! ", "? ", ": ", " «", "» ", "\n"
+    };
+
+    private RussianText() { }
+
+    public static String generate(long seed, int length) {
+        Random rnd = new Random(seed);
+        StringBuilder sb = new StringBuilder(length + 16);
+        while (sb.length() < length) {
+            sb.append(WORDS[rnd.nextInt(WORDS.length)]);
+            sb.append(PUNCTUATION[rnd.nextInt(PUNCTUATION.length)]);
+        }
+        sb.setLength(length);
+        return sb.toString();
+    }
+
+    public static Path writeTempFile(String text) throws IOException {
+        Path file = Files.createTempFile("caesar-bench", ".txt");
+        try (Writer w = FileManager.newWriter(file)) {
+            w.write(text);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.cipher;
+
+import org.example.bench.RussianText;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlphabetBenchmark {
+
+    @Param({"1024", "1048576"})
+    public int size;
+
+    private final Alphabet alphabet = Alphabet.RUSSIAN;
+    private char[] text;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        text = RussianText.generate(42, size).toCharArray();
+    }
+
+    @Benchmark
+    public long containsAndIndexOf() {
+        long sum = 0;
+        for (char c : text) {
+            if (alphabet.contains(c)) {
+                sum += alphabet.indexOf(c);
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.cipher;
+
+import org.example.bench.RussianText;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class CaesarCipherBenchmark {
+
+    @Param({"1024", "1048576", "104857600"})
+    public int size;
+
+    @Param({"1", "17", "39"})
+    public int key;
+
+    // cyr-lower — непрерывный диапазон, для него работает векторное ядро
+    @Param({"ru", "cyr-lower"})
+    public String alphabet;
+
+    private CaesarCipher cipher;
+    private char[] src;
+    private char[] dst;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cipher = new CaesarCipher(Alphabet.byId(alphabet));
+        src = RussianText.generate(42, size).toCharArray();
+        dst = new char[src.length];
+    }
+
+    @Benchmark
+    public char[] transformArray() {
+        cipher.transform(src, 0, src.length, dst, 0, key, false);
+        return dst;
+    }
+}
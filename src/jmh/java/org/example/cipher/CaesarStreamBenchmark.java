@@ -0,0 +1,79 @@
+package org.example.cipher;
+
+import org.example.bench.RussianText;
+import org.example.io.FileManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Потоковый путь отдельно от CaesarCipherBenchmark: параметр reader нужен только ему
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class CaesarStreamBenchmark {
+
+    @Param({"1024", "1048576", "104857600"})
+    public int size;
+
+    @Param({"1", "17", "39"})
+    public int key;
+
+    @Param({"string", "file"})
+    public String reader;
+
+    // cyr-lower — непрерывный диапазон, для него работает векторное ядро
+    @Param({"ru", "cyr-lower"})
+    public String alphabet;
+
+    private CaesarCipher cipher;
+    private String text;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        cipher = new CaesarCipher(Alphabet.byId(alphabet));
+        text = RussianText.generate(42, size);
+        if ("file".equals(reader)) {
+            file = RussianText.writeTempFile(text);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    public void transformStream() throws IOException {
+        try (Reader r = open()) {
+            cipher.transformStream(r, Writer.nullWriter(), key, false);
+        }
+    }
+
+    private Reader open() throws IOException {
+        return file != null ? FileManager.newReader(file) : new StringReader(text);
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.crack;
+
+import org.example.bench.RussianText;
+import org.example.cipher.Alphabet;
+import org.example.cipher.CaesarCipher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class CrackerBenchmark {
+
+    @Param({"1024", "1048576", "104857600"})
+    public int size;
+
+    @Param({"7"})
+    public int key;
+
+    private char[] plain;
+    private char[] encrypted;
+    private String encryptedText;
+    private double[] distSample;
+    private double[] distEncrypted;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        plain = RussianText.generate(42, size).toCharArray();
+        encrypted = new char[plain.length];
+        new CaesarCipher().transform(plain, 0, plain.length, encrypted, 0, key, false);
+        encryptedText = new String(encrypted);
+
+        // образец — другой текст того же генератора, чтобы частоты не совпадали идеально
+        distSample = LanguageProfile.fromSample(new StringReader(RussianText.generate(7, 1 << 20)), Alphabet.RUSSIAN, false).unigrams();
+        distEncrypted = LanguageProfile.fromSample(new StringReader(encryptedText), Alphabet.RUSSIAN, false).unigrams();
+    }
+
+    @Benchmark
+    public double scoreBySyllables() {
+        SyllableScorer scorer = new SyllableScorer();
+        scorer.feed(plain, 0, plain.length);
+        return scorer.score();
+    }
+
+    @Benchmark
+    public double computeChiSquaredAllKeys() {
+        double best = Double.MAX_VALUE;
+        for (int k = 0; k < distSample.length; k++) {
+            best = Math.min(best, StatAnalyzerCracker.computeChiSquared(distEncrypted, distSample, k));
+        }
+        return best;
+    }
+
+    @Benchmark
+    public StatCrackResult detectKey() throws IOException {
+        return new StatAnalyzerCracker().detectKey(new StringReader(encryptedText), distSample);
+    }
+}
@@ -1,33 +1,64 @@
 package org.example;
 
+import org.example.batch.BatchProcessor;
+import org.example.batch.BatchReport;
 import org.example.cipher.CaesarCipher;
 import org.example.cipher.Alphabet;
+import org.example.cipher.ParallelFileCipher;
+import org.example.cli.CommandMode;
 import org.example.io.FileManager;
+import org.example.io.TextFileCipher;
+import org.example.metrics.JmxExporter;
+import org.example.metrics.JsonExporter;
+import org.example.metrics.MetricsSnapshot;
+import org.example.metrics.Metrics;
+import org.example.metrics.TextExporter;
+import org.example.validation.ValidatedInput;
+import org.example.validation.ValidatedOutput;
 import org.example.validation.Validator;
 import org.example.crack.BruteForceCracker;
+import org.example.crack.KeyCandidate;
+import org.example.crack.NGramCracker;
 import org.example.crack.StatAnalyzerCracker;
+import org.example.crack.StatCrackResult;
 
 import java.io.IOException;
-import java.io.Reader;
-import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Scanner;
 
 public class Main {
     
-    private static final CaesarCipher CIPHER = new CaesarCipher();
-    private static final Validator VAL = new Validator(Alphabet.length());
-    private static final BruteForceCracker BF = new BruteForceCracker();
-    private static final StatAnalyzerCracker STAT = new StatAnalyzerCracker();
+    private static final Alphabet ALPHABET = Alphabet.RUSSIAN;
+    private static final CaesarCipher CIPHER = new CaesarCipher(ALPHABET);
+    private static final TextFileCipher FILES = new TextFileCipher(CIPHER);
+    private static final Validator VAL = new Validator(ALPHABET);
+
+    // Взломщики создаются при первом обращении, чтобы командный режим не платил за их загрузку
+    private static final class Crackers {
+        static final BruteForceCracker BF = new BruteForceCracker(ALPHABET);
+        static final StatAnalyzerCracker STAT = new StatAnalyzerCracker(ALPHABET);
+        static final NGramCracker NGRAM = new NGramCracker(ALPHABET);
+    }
 
     public static void main(String[] args) {
+        if (args.length > 0) {
+            System.exit(CommandMode.run(args));
+        }
         Scanner sc = new Scanner(System.in);
+        try {
+            new JmxExporter().register();
+        } catch (IOException ex) {
+            System.err.println("Метрики недоступны через JMX: " + ex.getMessage());
+        }
 
         while (true) {
             // Меню
             System.out.println("\n==== Caesar Cipher CLI ====");
-            System.out.println("1) Encrypt   2) Decrypt   3) Brute Force   4) Stat Crack   0) Exit");
+            System.out.println("1) Encrypt   2) Decrypt   3) Brute Force   4) Stat Crack   5) Build Profile   6) N-gram Crack   7) Batch   8) Metrics   0) Exit");
             System.out.print("> ");
             String cmd = sc.nextLine().trim();
 
@@ -45,11 +76,23 @@ public class Main {
                     case "4":
                         statFlow(sc);
                         break;
+                    case "5":
+                        profileFlow(sc);
+                        break;
+                    case "6":
+                        ngramFlow(sc);
+                        break;
+                    case "7":
+                        batchFlow(sc);
+                        break;
+                    case "8":
+                        metricsFlow(sc);
+                        break;
                     case "0":
                         System.out.println("Выход.");
                         return;
                     default:
-                        System.out.println("Не понимаю команду, введите цифру 0–4.");
+                        System.out.println("Не понимаю команду, введите цифру 0–8.");
                 }
             } catch (IOException ex) {
                 System.err.println("Ошибка: " + ex.getMessage());
@@ -64,17 +107,16 @@ public class Main {
         System.out.print("Файл-назначение   : ");
         Path output = Paths.get(sc.nextLine().trim());
 
-        System.out.print("Ключ (0-" + (Alphabet.length() - 1) + "): ");
+        System.out.print("Ключ (0-" + (ALPHABET.length() - 1) + "): ");
         int key = Integer.parseInt(sc.nextLine().trim());
 
+        String mode = askMode(sc);
+
         VAL.ensureFileReadable(input);
         VAL.ensureParentWritable(output);
         VAL.ensureKeyInRange(key);
 
-        try (Reader r = FileManager.newReader(input);
-             Writer w = FileManager.newWriter(output)) {
-            CIPHER.transformStream(r, w, key, false);
-        }
+        runTransform(input, output, key, false, mode);
         System.out.println("Успех: зашифровано → " + output.getFileName());
     }
 
@@ -85,20 +127,101 @@ public class Main {
         System.out.print("Файл-назначение   : ");
         Path output = Paths.get(sc.nextLine().trim());
 
-        System.out.print("Ключ (0-" + (Alphabet.length() - 1) + "): ");
+        System.out.print("Ключ (0-" + (ALPHABET.length() - 1) + "): ");
         int key = Integer.parseInt(sc.nextLine().trim());
 
+        String mode = askMode(sc);
+
         VAL.ensureFileReadable(input);
         VAL.ensureParentWritable(output);
         VAL.ensureKeyInRange(key);
 
-        try (Reader r = FileManager.newReader(input);
-             Writer w = FileManager.newWriter(output)) {
-            CIPHER.transformStream(r, w, key, true);
-        }
+        runTransform(input, output, key, true, mode);
         System.out.println("Успех: расшифровано → " + output.getFileName());
     }
 
+    private static String askMode(Scanner sc) {
+        System.out.print("Режим (1 — последовательно, 2 — параллельно, 3 — сравнить) [1]: ");
+        String mode = sc.nextLine().trim();
+        return mode.isEmpty() ? "1" : mode;
+    }
+
+    private static void runTransform(Path input, Path output, int key, boolean decrypt, String mode) throws IOException {
+        switch (mode) {
+            case "2":
+                transformFileParallel(input, output, key, decrypt);
+                break;
+            case "3":
+                compareModes(input, output, key, decrypt);
+                break;
+            default:
+                transformFile(input, output, key, decrypt);
+        }
+    }
+
+    // Оба режима сначала прогреваются (JIT и страницы входа/выхода в кэше ОС), затем замеряются
+    // в порядке A-B-B-A, чтобы ни один не получал выгоду от того, что идёт вторым
+    private static void compareModes(Path input, Path output, int key, boolean decrypt) throws IOException {
+        Charset charset = FileManager.charsetFor(input);
+        ParallelFileCipher parallel = parallel(charset, key, decrypt);
+        if (parallel == null) {
+            System.out.println("Кодировка " + charset.name() + " многобайтовая, параллельного режима нет: "
+                    + "шифруем последовательно, без сравнения.");
+            transformFile(input, output, key, decrypt);
+            return;
+        }
+        transformFile(input, output, key, decrypt);
+        transformFileParallel(parallel, input, output, key, decrypt);
+        long seqNanos = 0;
+        long parNanos = 0;
+        for (int round = 0; round < 4; round++) {
+            boolean sequential = round == 0 || round == 3;
+            long t0 = System.nanoTime();
+            if (sequential) {
+                transformFile(input, output, key, decrypt);
+                seqNanos += System.nanoTime() - t0;
+            } else {
+                transformFileParallel(parallel, input, output, key, decrypt);
+                parNanos += System.nanoTime() - t0;
+            }
+        }
+        double seqMs = seqNanos / 2e6;
+        double parMs = parNanos / 2e6;
+        System.out.printf("Последовательно: %.1f мс, параллельно (%d потоков): %.1f мс, ускорение ×%.2f%n",
+                seqMs, Runtime.getRuntime().availableProcessors(), parMs, seqMs / Math.max(parMs, 1e-3));
+        System.out.println("Среднее по двум замерам после прогрева, оба режима пишут в один и тот же файл.");
+    }
+
+    // Параллельный режим есть только для однобайтовых кодировок, для остальных — обычный
+    private static void transformFileParallel(Path input, Path output, int key, boolean decrypt) throws IOException {
+        Charset charset = FileManager.charsetFor(input);
+        ParallelFileCipher parallel = parallel(charset, key, decrypt);
+        if (parallel == null) {
+            System.out.println("Кодировка " + charset.name() + " многобайтовая, шифруем последовательно.");
+            transformFile(input, output, key, decrypt);
+            return;
+        }
+        transformFileParallel(parallel, input, output, key, decrypt);
+    }
+
+    // null — кодировка многобайтовая. Как и последовательный путь, сначала проверяет, что алфавит
+    // представим в кодировке: иначе блоки упали бы с IllegalArgumentException уже в пуле
+    private static ParallelFileCipher parallel(Charset charset, int key, boolean decrypt) throws IOException {
+        return FILES.byteCipher(charset, key, decrypt) == null ? null : FILES.parallel(charset);
+    }
+
+    private static void transformFileParallel(ParallelFileCipher parallel, Path input, Path output, int key,
+                                              boolean decrypt) throws IOException {
+        try (FileChannel in = FileManager.newReadChannel(input);
+             FileChannel out = FileManager.newWriteChannel(output)) {
+            parallel.transform(in, out, key, decrypt);
+        }
+    }
+
+    private static void transformFile(Path input, Path output, int key, boolean decrypt) throws IOException {
+        FILES.transform(input, output, key, decrypt);
+    }
+
     private static void bruteFlow(Scanner sc) throws IOException {
         System.out.print("Файл-источник     : ");
         Path input = Paths.get(sc.nextLine().trim());
@@ -106,27 +229,125 @@ public class Main {
         System.out.print("Файл-назначение   : ");
         Path output = Paths.get(sc.nextLine().trim());
 
-        VAL.ensureFileReadable(input);
-        VAL.ensureParentWritable(output);
+        ValidatedInput in = VAL.ensureFileReadable(input);
+        ValidatedOutput out = VAL.ensureParentWritable(output);
 
-        BF.crackByBruteForce(input, output, VAL);
-        System.out.println("Brute Force: все возможные варианты записаны в " + output.getFileName());
+        int key = Crackers.BF.crackByBruteForce(in, out);
+        System.out.println("Найден ключ: " + key);
+        System.out.println("Готово! Файл расшифрован в: " + output);
     }
 
     private static void statFlow(Scanner sc) throws IOException {
         System.out.print("Файл-источник     : ");
         Path input = Paths.get(sc.nextLine().trim());
 
-        System.out.print("Файл-образец     : ");
+        System.out.print("Образец или профиль: ");
         Path sample = Paths.get(sc.nextLine().trim());
 
         System.out.print("Файл-назначение   : ");
         Path output = Paths.get(sc.nextLine().trim());
 
-        VAL.ensureFileReadable(input);
+        ValidatedInput in = VAL.ensureFileReadable(input);
+        ValidatedInput profile = VAL.ensureFileReadable(sample);
+        ValidatedOutput out = VAL.ensureParentWritable(output);
+
+        StatCrackResult result = Crackers.STAT.crackByStatAnalysis(in, profile, out);
+        System.out.println("Найден ключ: " + result.key() + " (χ²=" + String.format("%.4f", result.chiSquared())
+                + String.format(", отрыв %.3f, прочитано %d байт%s)", result.margin(), result.bytesConsumed(),
+                result.earlyExit() ? ", досрочно" : ""));
+        System.out.println("Готово! Файл расшифрован в: " + output);
+    }
+
+    private static void ngramFlow(Scanner sc) throws IOException {
+        System.out.print("Файл-источник     : ");
+        Path input = Paths.get(sc.nextLine().trim());
+
+        System.out.print("Образец или профиль: ");
+        Path sample = Paths.get(sc.nextLine().trim());
+
+        System.out.print("Файл-назначение   : ");
+        Path output = Paths.get(sc.nextLine().trim());
+
+        ValidatedInput in = VAL.ensureFileReadable(input);
+        ValidatedInput profile = VAL.ensureFileReadable(sample);
+        ValidatedOutput out = VAL.ensureParentWritable(output);
+
+        List<KeyCandidate> ranked = Crackers.NGRAM.crackByNGrams(in, profile, out);
+        for (KeyCandidate c : ranked.subList(0, Math.min(3, ranked.size()))) {
+            System.out.printf("Ключ %2d: оценка %.2f, уверенность %.4f%n", c.key(), c.score(), c.confidence());
+        }
+        System.out.println("Готово! Файл расшифрован ключом " + ranked.get(0).key() + " в: " + output);
+    }
+
+    private static void batchFlow(Scanner sc) throws IOException {
+        System.out.print("Папка-источник    : ");
+        Path inputDir = Paths.get(sc.nextLine().trim());
+
+        System.out.print("Папка-назначение  : ");
+        Path outputDir = Paths.get(sc.nextLine().trim());
+
+        System.out.print("Маска файлов [*.txt]: ");
+        String glob = sc.nextLine().trim();
+        if (glob.isEmpty()) glob = "*.txt";
+
+        System.out.print("Операция (1 — шифровать, 2 — расшифровать, 3 — Brute Force, 4 — Stat Crack): ");
+        String op = sc.nextLine().trim();
+
+        BatchProcessor.FileTask task;
+        switch (op) {
+            case "1":
+            case "2": {
+                System.out.print("Ключ (0-" + (ALPHABET.length() - 1) + "): ");
+                int key = Integer.parseInt(sc.nextLine().trim());
+                VAL.ensureKeyInRange(key);
+                boolean decrypt = op.equals("2");
+                task = (in, out) -> transformFile(in.path(), out.path(), key, decrypt);
+                break;
+            }
+            case "3":
+                task = Crackers.BF::crackByBruteForce;
+                break;
+            case "4": {
+                System.out.print("Образец или профиль: ");
+                Path sample = Paths.get(sc.nextLine().trim());
+                ValidatedInput profile = VAL.ensureFileReadable(sample);
+                task = (in, out) -> Crackers.STAT.crackByStatAnalysis(in, profile, out);
+                break;
+            }
+            default:
+                System.out.println("Не понимаю операцию, введите цифру 1–4.");
+                return;
+        }
+
+        BatchReport report = new BatchProcessor().run(inputDir, outputDir, glob, task, VAL);
+        System.out.println("Пакет завершён. " + report);
+    }
+
+    private static void metricsFlow(Scanner sc) throws IOException {
+        MetricsSnapshot snapshot = Metrics.snapshot();
+        new TextExporter(System.out).export(snapshot);
+
+        System.out.print("Сохранить в JSON (пусто — нет): ");
+        String file = sc.nextLine().trim();
+        if (!file.isEmpty()) {
+            Path json = Paths.get(file);
+            VAL.ensureParentWritable(json);
+            new JsonExporter(json).export(snapshot);
+            System.out.println("Успех: метрики сохранены → " + json.getFileName());
+        }
+    }
+
+    private static void profileFlow(Scanner sc) throws IOException {
+        System.out.print("Файл-образец     : ");
+        Path sample = Paths.get(sc.nextLine().trim());
+
+        System.out.print("Файл профиля     : ");
+        Path profile = Paths.get(sc.nextLine().trim());
+
         VAL.ensureFileReadable(sample);
-        VAL.ensureParentWritable(output);
+        VAL.ensureParentWritable(profile);
 
-        STAT.crackByStatAnalysis(input, sample, output, VAL);
+        Crackers.STAT.compileProfile(sample, profile, VAL);
+        System.out.println("Успех: профиль сохранён → " + profile.getFileName());
     }
 }
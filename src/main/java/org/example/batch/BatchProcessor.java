@@ -0,0 +1,123 @@
+package org.example.batch;
+
+import org.example.validation.ValidatedInput;
+import org.example.validation.ValidatedOutput;
+import org.example.validation.Validator;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Пакетная обработка дерева каталогов: каждый подходящий файл обрабатывается в зеркальный путь
+ * выходного дерева на ограниченном пуле потоков. Число задач в полёте ограничено семафором,
+ * поэтому обход не опережает обработку и память не растёт. Ошибка в одном файле или нечитаемая
+ * папка не прерывают пакет.
+ * Выходная папка создаётся перед каждым файлом (для существующей это дёшево), а проверяется
+ * один раз на пакет; задаче передаются уже проверенные пути.
+ */
+public class BatchProcessor {
+
+    @FunctionalInterface
+    public interface FileTask {
+        void process(ValidatedInput input, ValidatedOutput output) throws IOException;
+    }
+
+    private final int threads;
+    private final int maxInFlight;
+
+    public BatchProcessor() {
+        this(Runtime.getRuntime().availableProcessors(), 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchProcessor(int threads, int maxInFlight) {
+        if (threads <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Число потоков и задач должно быть положительным");
+        }
+        this.threads = threads;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public BatchReport run(Path inputRoot, Path outputRoot, String glob, FileTask task, Validator validator)
+            throws IOException {
+        if (!Files.isDirectory(inputRoot)) {
+            throw new IOException("Указанный путь не является папкой: " + inputRoot);
+        }
+        Files.createDirectories(outputRoot);
+        Validator batchValidator = validator.forBatch();
+
+        AtomicLong files = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+
+        try {
+            walk(inputRoot, glob, input -> {
+                Path output = outputRoot.resolve(inputRoot.relativize(input).toString());
+                inFlight.acquireUninterruptibly();
+                pool.execute(() -> {
+                    try {
+                        ValidatedInput in = batchValidator.ensureFileReadable(input);
+                        Files.createDirectories(output.getParent());
+                        task.process(in, batchValidator.ensureParentWritable(output));
+                        files.incrementAndGet();
+                        bytes.addAndGet(in.size());
+                    } catch (IOException | RuntimeException ex) {
+                        failed.incrementAndGet();
+                        System.err.println("Ошибка: " + input + ": " + ex.getMessage());
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }, (path, ex) -> failed.incrementAndGet());
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Пакетная обработка прервана", e);
+            }
+        }
+        return new BatchReport(files.get(), failed.get(), bytes.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Обходит дерево и отдаёт обычные файлы, имя которых подходит под glob. Нечитаемый подкаталог
+     * или файл считается ошибкой одного элемента: о нём печатается сообщение, обход продолжается.
+     */
+    public static void walk(Path root, String glob, Consumer<Path> onFile, BiConsumer<Path, IOException> onError)
+            throws IOException {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && matcher.matches(file.getFileName())) {
+                    onFile.accept(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path path, IOException ex) {
+                System.err.println("Ошибка: " + path + ": не удалось прочитать (" + ex.getMessage() + ")");
+                onError.accept(path, ex);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
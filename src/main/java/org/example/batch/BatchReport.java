@@ -0,0 +1,21 @@
+package org.example.batch;
+
+/**
+ * Итог пакетной обработки каталога: обработанные и неудачные файлы, объём входных данных и время.
+ */
+public record BatchReport(long files, long failed, long bytes, long nanos) {
+
+    public double filesPerSecond() {
+        return nanos == 0 ? 0 : files / (nanos / 1e9);
+    }
+
+    public double megabytesPerSecond() {
+        return nanos == 0 ? 0 : bytes / (1024.0 * 1024.0) / (nanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Файлов: %d (ошибок: %d), %.1f МБ за %.2f с — %.1f файлов/с, %.1f МБ/с",
+                files, failed, bytes / (1024.0 * 1024.0), nanos / 1e9, filesPerSecond(), megabytesPerSecond());
+    }
+}
@@ -1,42 +1,149 @@
 package org.example.cipher;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
 
 
+/**
+ * Алфавит шифра: упорядоченный набор символов, сдвигаемых по кругу.
+ * Индексы символов лежат в плотной таблице на весь диапазон char,
+ * поэтому {@link #contains} и {@link #indexOf} — одно чтение из массива.
+ */
 public final class Alphabet {
 
-    private static final char[] ALPHABET = {
+    // Исторический алфавит программы: строчные без 'ё' и 'й' плюс знаки препинания
+    public static final Alphabet RUSSIAN = new Alphabet("ru", new char[]{
             'а', 'б', 'в', 'г', 'д', 'е', 'ж', 'з',
             'и', 'к', 'л', 'м', 'н', 'о', 'п', 'р',
             'с', 'т', 'у', 'ф', 'х', 'ц', 'ч', 'ш',
             'щ', 'ъ', 'ы', 'ь', 'э', 'я',
             '.', ',', '«', '»', '"', '\'', ':', '!', '?', ' '
-    };
+    });
 
+    public static final Alphabet RUSSIAN_CASE = of("ru-case",
+            "абвгдеёжзийклмнопрстуфхцчшщъыьэюя"
+                    + "АБВГДЕЁЖЗИЙКЛМНОПРСТУФХЦЧШЩЪЫЬЭЮЯ"
+                    + ".,«»\"':!? ");
 
-    private static final Map<Character, Integer> INDEX_MAP = new HashMap<>();
+    public static final Alphabet LATIN = of("latin",
+            "abcdefghijklmnopqrstuvwxyz"
+                    + "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+                    + ".,\"':!? ");
 
-    static {
-        for (int i = 0; i < ALPHABET.length; i++) {
-            INDEX_MAP.put(ALPHABET[i], i);
+    // Непрерывные диапазоны: для них доступно векторное ядро шифра
+    public static final Alphabet CYRILLIC_LOWER = range("cyr-lower", 'а', 'я');
+
+    public static final Alphabet LATIN_LOWER = range("latin-lower", 'a', 'z');
+
+    private static final List<Alphabet> BUILT_IN = List.of(RUSSIAN, RUSSIAN_CASE, LATIN, CYRILLIC_LOWER, LATIN_LOWER);
+
+    private final String id;
+    private final char[] symbols;
+    private final int[] index;
+
+    private Alphabet(String id, char[] symbols) {
+        if (symbols.length < 2) {
+            throw new IllegalArgumentException("В алфавите должно быть хотя бы два символа: " + id);
+        }
+        this.id = id;
+        this.symbols = symbols;
+        this.index = new int[Character.MAX_VALUE + 1];
+        Arrays.fill(index, -1);
+        for (int i = 0; i < symbols.length; i++) {
+            if (index[symbols[i]] >= 0) {
+                throw new IllegalArgumentException("Символ '" + symbols[i] + "' повторяется в алфавите " + id);
+            }
+            index[symbols[i]] = i;
+        }
+    }
+
+    public static Alphabet of(String id, String symbols) {
+        return new Alphabet(id, symbols.toCharArray());
+    }
+
+    public static Alphabet range(String id, char first, char last) {
+        char[] symbols = new char[last - first + 1];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = (char) (first + i);
+        }
+        return new Alphabet(id, symbols);
+    }
+
+    // Встроенный алфавит по идентификатору (ru, ru-case, latin, cyr-lower, latin-lower)
+    public static Alphabet byId(String id) {
+        for (Alphabet a : BUILT_IN) {
+            if (a.id.equals(id)) {
+                return a;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный алфавит: " + id);
+    }
+
+    // Файл в UTF-8: первая строка — идентификатор, вторая — символы алфавита подряд (пробел допустим)
+    public static Alphabet load(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.size() < 2 || lines.get(0).isBlank()) {
+            throw new IOException("Ожидались две строки (идентификатор и символы): " + file);
+        }
+        try {
+            return of(lines.get(0).trim(), lines.get(1));
+        } catch (IllegalArgumentException ex) {
+            throw new IOException(ex.getMessage() + ": " + file, ex);
         }
     }
 
-    private Alphabet() { }
+    public String id() {
+        return id;
+    }
+
+    public int length() {
+        return symbols.length;
+    }
+
+    public boolean contains(char ch) {
+        return index[ch] >= 0;
+    }
 
-    public static int length() {
-        return ALPHABET.length;
+    // -1, если символа нет в алфавите
+    public int indexOf(char ch) {
+        return index[ch];
     }
-    public static boolean contains(char ch) {
-        return INDEX_MAP.containsKey(ch);
+
+    public char charAt(int idx) {
+        return symbols[idx];
+    }
+
+    // Первый символ, если алфавит — непрерывный диапазон char, иначе -1
+    public int contiguousBase() {
+        for (int i = 1; i < symbols.length; i++) {
+            if (symbols[i] != symbols[0] + i) {
+                return -1;
+            }
+        }
+        return symbols[0];
+    }
+
+    public char[] symbols() {
+        return symbols.clone();
+    }
+
+    // Алфавиты равны, если совпадают символы и их порядок; идентификатор не важен
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Alphabet && Arrays.equals(symbols, ((Alphabet) o).symbols));
     }
 
-    public static int indexOf(char ch) {
-        return INDEX_MAP.get(ch);
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(symbols);
     }
 
-    public static char charAt(int idx) {
-        return ALPHABET[idx];
+    @Override
+    public String toString() {
+        return id + " (" + symbols.length + ")";
     }
 }
@@ -0,0 +1,193 @@
+package org.example.cipher;
+
+import org.example.metrics.CipherEvent;
+import org.example.metrics.Counter;
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.util.function.LongConsumer;
+
+public class ByteCaesarCipher {
+
+    public static final long MAP_REGION = 64L * 1024 * 1024;
+
+    // Шаг, с которым внутри региона сообщается прогресс и проверяется прерывание потока
+    private static final int PROGRESS_STEP = 1024 * 1024;
+
+    private static final int BYTE_RANGE = 256;
+
+    private static final Counter BYTES = Metrics.counter(Metrics.CIPHER_BYTES);
+    private static final LatencyHistogram CHANNEL_TIME = Metrics.histogram("cipher.channel");
+
+    private final Charset charset;
+    private final CaesarCipher cipher;
+    private final byte[][] tables;
+
+    public ByteCaesarCipher(Charset charset) {
+        this(charset, new CaesarCipher());
+    }
+
+    public ByteCaesarCipher(Charset charset, CaesarCipher cipher) {
+        if (!isSingleByte(charset)) {
+            throw new IllegalArgumentException("Кодировка не однобайтовая: " + charset.name());
+        }
+        this.charset = charset;
+        this.cipher = cipher;
+        this.tables = new byte[2 * cipher.alphabet().length()][];
+    }
+
+    public static boolean isSingleByte(Charset charset) {
+        return charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1.0f;
+    }
+
+    public Alphabet alphabet() {
+        return cipher.alphabet();
+    }
+
+    public Charset charset() {
+        return charset;
+    }
+
+    public void transform(byte[] src, int off, int len, byte[] dst, int dstOff, int key, boolean decrypt) {
+        apply(table(key, decrypt), src, off, len, dst, dstOff);
+    }
+
+    public void transform(ByteBuffer src, ByteBuffer dst, int key, boolean decrypt) {
+        byte[] table = table(key, decrypt);
+        int len = src.remaining();
+        if (dst.remaining() < len) {
+            throw new IllegalArgumentException("Недостаточно места в выходном буфере: " + dst.remaining() + " < " + len);
+        }
+        if (src.hasArray() && dst.hasArray()) {
+            apply(table, src.array(), src.arrayOffset() + src.position(), len,
+                    dst.array(), dst.arrayOffset() + dst.position());
+            src.position(src.position() + len);
+            dst.position(dst.position() + len);
+            return;
+        }
+        // прямые и отображённые буферы: абсолютные get/put без промежуточных массивов
+        int sp = src.position();
+        int dp = dst.position();
+        for (int i = 0; i < len; i++) {
+            dst.put(dp + i, table[src.get(sp + i) & 0xFF]);
+        }
+        src.position(sp + len);
+        dst.position(dp + len);
+    }
+
+    // Шифрует файл целиком через отображение в память, регионами по MAP_REGION байт.
+    // out должен быть открыт на чтение и запись. Возвращает число обработанных байт.
+    public long transformChannel(FileChannel in, FileChannel out, int key, boolean decrypt) throws IOException {
+        return transformChannel(in, out, key, decrypt, done -> { });
+    }
+
+    // progress получает число уже обработанных байт; прерывание потока останавливает работу
+    public long transformChannel(FileChannel in, FileChannel out, int key, boolean decrypt, LongConsumer progress)
+            throws IOException {
+        CipherEvent event = new CipherEvent();
+        event.begin();
+        long t0 = System.nanoTime();
+        long size = in.size();
+        try {
+            for (long pos = 0; pos < size; pos += MAP_REGION) {
+                int len = (int) Math.min(MAP_REGION, size - pos);
+                MappedByteBuffer src = in.map(FileChannel.MapMode.READ_ONLY, pos, len);
+                MappedByteBuffer dst = out.map(FileChannel.MapMode.READ_WRITE, pos, len);
+                for (int done = 0; done < len; ) {
+                    int step = Math.min(PROGRESS_STEP, len - done);
+                    src.limit(done + step);
+                    dst.limit(done + step);
+                    transform(src, dst, key, decrypt);
+                    done += step;
+                    BYTES.add(step);
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Операция прервана на байте " + (pos + done));
+                    }
+                    progress.accept(pos + done);
+                }
+            }
+        } finally {
+            CHANNEL_TIME.recordSince(t0);
+            if (event.shouldCommit()) {
+                event.operation = "channel";
+                event.alphabet = alphabet().id();
+                event.key = key;
+                event.decrypt = decrypt;
+                event.amount = size;
+                event.commit();
+            }
+        }
+        return size;
+    }
+
+    // Строит таблицу заранее: символ алфавита может не иметь кода в кодировке (« и » в KOI8-R)
+    public void requireRepresentable(int key, boolean decrypt) throws IOException {
+        try {
+            table(key, decrypt);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Алфавит " + alphabet().id() + " не подходит для " + charset.name() + ": "
+                    + ex.getMessage(), ex);
+        }
+    }
+
+    // Общая кэшированная таблица, наружу пакета не отдаётся
+    synchronized byte[] table(int key, boolean decrypt) {
+        int alphabetLength = cipher.alphabet().length();
+        key = ((key % alphabetLength) + alphabetLength) % alphabetLength;
+
+        int slot = decrypt ? alphabetLength + key : key;
+        byte[] table = tables[slot];
+        if (table == null) {
+            table = buildTable(cipher.table(key, decrypt));
+            tables[slot] = table;
+        }
+        return table;
+    }
+
+    private byte[] buildTable(char[] charTable) {
+        CharsetDecoder decoder = charset.newDecoder();
+        CharsetEncoder encoder = charset.newEncoder();
+        byte[] table = new byte[BYTE_RANGE];
+        for (int b = 0; b < BYTE_RANGE; b++) {
+            table[b] = (byte) b;
+            char ch;
+            try {
+                CharBuffer decoded = decoder.reset().decode(ByteBuffer.wrap(new byte[]{(byte) b}));
+                if (decoded.remaining() != 1) {
+                    continue;
+                }
+                ch = decoded.get();
+            } catch (CharacterCodingException e) {
+                // байт не отображается в символ — оставляем как есть
+                continue;
+            }
+            char mapped = charTable[ch];
+            if (mapped == ch) {
+                continue;
+            }
+            try {
+                ByteBuffer encoded = encoder.reset().encode(CharBuffer.wrap(new char[]{mapped}));
+                table[b] = encoded.get();
+            } catch (CharacterCodingException e) {
+                throw new IllegalArgumentException("Символ алфавита '" + mapped + "' не представим в " + charset.name(), e);
+            }
+        }
+        return table;
+    }
+
+    private static void apply(byte[] table, byte[] src, int off, int len, byte[] dst, int dstOff) {
+        for (int i = 0; i < len; i++) {
+            dst[dstOff + i] = table[src[off + i] & 0xFF];
+        }
+    }
+}
@@ -1,35 +1,176 @@
 package org.example.cipher;
 
+import org.example.metrics.CipherEvent;
+import org.example.metrics.Counter;
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.Metrics;
+
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.function.LongConsumer;
 
 public class CaesarCipher {
 
+    public static final int BLOCK_SIZE = 8192;
+
+    private static final int CHAR_RANGE = Character.MAX_VALUE + 1;
+
+    private static final Counter CHARS = Metrics.counter(Metrics.CIPHER_CHARS);
+    private static final LatencyHistogram STREAM_TIME = Metrics.histogram("cipher.stream");
+
+    private final Alphabet alphabet;
+    private final VectorKernel kernel;
+    private final int vectorBase;
+
+    // Таблицы подстановки char[65536] строятся лениво: индекс key для шифрования, N + key для расшифровки
+    private final char[][] tables;
+
+    public CaesarCipher() {
+        this(Alphabet.RUSSIAN);
+    }
+
+    public CaesarCipher(Alphabet alphabet) {
+        this(alphabet, KernelHolder.KERNEL);
+    }
+
+    CaesarCipher(Alphabet alphabet, VectorKernel kernel) {
+        this.alphabet = alphabet;
+        this.tables = new char[2 * alphabet.length()][];
+        // сдвинутое значение должно оставаться положительным short внутри векторного ядра
+        int base = alphabet.contiguousBase();
+        boolean fits = base >= 0 && base + 2 * alphabet.length() <= Short.MAX_VALUE;
+        this.kernel = fits ? kernel : null;
+        this.vectorBase = base;
+    }
+
+    public boolean isVectorized() {
+        return kernel != null;
+    }
+
+    public Alphabet alphabet() {
+        return alphabet;
+    }
+
     public void transformStream(Reader reader, Writer writer, int key, boolean decrypt) throws IOException {
-   
-        int alphabetLength = Alphabet.length();
-        key = ((key % alphabetLength) + alphabetLength) % alphabetLength;
+        transformBlocks(reader, writer, key, decrypt);
+    }
 
-        int r;
-        while ((r = reader.read()) != -1) {
-            char ch = (char) r;
-            if (Alphabet.contains(ch)) {
-                int idx = Alphabet.indexOf(ch);
-                int shifted;
-                if (!decrypt) {
-
-                    shifted = (idx + key) % alphabetLength;
-                } else {
-           
-                    shifted = (idx - key + alphabetLength) % alphabetLength;
+    public void transformBlocks(Reader reader, Writer writer, int key, boolean decrypt) throws IOException {
+        transformBlocks(reader, writer, key, decrypt, done -> { });
+    }
+
+    // progress получает число уже обработанных символов; прерывание потока останавливает работу
+    public void transformBlocks(Reader reader, Writer writer, int key, boolean decrypt, LongConsumer progress)
+            throws IOException {
+        CipherEvent event = new CipherEvent();
+        event.begin();
+        long t0 = System.nanoTime();
+        char[] table = table(key, decrypt);
+        char[] buf = new char[BLOCK_SIZE];
+
+        long total = 0;
+        int n;
+        try {
+            while ((n = reader.read(buf, 0, buf.length)) != -1) {
+                apply(table, key, decrypt, buf, 0, n, buf, 0);
+                writer.write(buf, 0, n);
+                total += n;
+                CHARS.add(n);
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Операция прервана на символе " + total);
                 }
-                writer.write(Alphabet.charAt(shifted));
+                progress.accept(total);
+            }
+            writer.flush();
+        } finally {
+            STREAM_TIME.recordSince(t0);
+            if (event.shouldCommit()) {
+                event.operation = "stream";
+                event.alphabet = alphabet.id();
+                event.key = key;
+                event.decrypt = decrypt;
+                event.amount = total;
+                event.commit();
+            }
+        }
+    }
+
+    public void transform(char[] src, int off, int len, char[] dst, int dstOff, int key, boolean decrypt) {
+        apply(table(key, decrypt), key, decrypt, src, off, len, dst, dstOff);
+    }
+
+    public void transform(CharBuffer src, CharBuffer dst, int key, boolean decrypt) {
+        char[] table = table(key, decrypt);
+        int len = src.remaining();
+        if (dst.remaining() < len) {
+            throw new IllegalArgumentException("Недостаточно места в выходном буфере: " + dst.remaining() + " < " + len);
+        }
+        if (src.hasArray() && dst.hasArray()) {
+            apply(table, key, decrypt, src.array(), src.arrayOffset() + src.position(), len,
+                    dst.array(), dst.arrayOffset() + dst.position());
+            src.position(src.position() + len);
+            dst.position(dst.position() + len);
+        } else {
+            while (src.hasRemaining()) {
+                dst.put(table[src.get()]);
+            }
+        }
+    }
+
+    // Строит таблицу заранее, чтобы первый блок не платил за её построение
+    public void warm(int key, boolean decrypt) {
+        table(key, decrypt);
+    }
+
+    // Возвращает общую кэшированную таблицу без копии: только для чтения внутри пакета
+    synchronized char[] table(int key, boolean decrypt) {
+        int alphabetLength = alphabet.length();
+        key = ((key % alphabetLength) + alphabetLength) % alphabetLength;
+
+        int slot = decrypt ? alphabetLength + key : key;
+        char[] table = tables[slot];
+        if (table == null) {
+            table = buildTable(key, decrypt);
+            tables[slot] = table;
+        }
+        return table;
+    }
+
+    private char[] buildTable(int key, boolean decrypt) {
+        int alphabetLength = alphabet.length();
+        char[] table = new char[CHAR_RANGE];
+        for (int c = 0; c < CHAR_RANGE; c++) {
+            table[c] = (char) c;
+        }
+        for (int idx = 0; idx < alphabetLength; idx++) {
+            int shifted;
+            if (!decrypt) {
+                shifted = (idx + key) % alphabetLength;
             } else {
- 
-                writer.write(ch);
+                shifted = (idx - key + alphabetLength) % alphabetLength;
             }
+            table[alphabet.charAt(idx)] = alphabet.charAt(shifted);
         }
-        writer.flush();
+        return table;
+    }
+
+    private void apply(char[] table, int key, boolean decrypt, char[] src, int off, int len, char[] dst, int dstOff) {
+        int done = 0;
+        if (kernel != null) {
+            int n = alphabet.length();
+            int k = ((key % n) + n) % n;
+            done = kernel.apply(src, off, len, dst, dstOff, vectorBase, n, decrypt ? (n - k) % n : k);
+        }
+        for (int i = done; i < len; i++) {
+            dst[dstOff + i] = table[src[off + i]];
+        }
+    }
+
+    // Ядро загружается при первом создании шифра, а не при загрузке класса
+    private static final class KernelHolder {
+        static final VectorKernel KERNEL = VectorKernel.load();
     }
 }
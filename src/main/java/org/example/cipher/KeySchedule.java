@@ -0,0 +1,20 @@
+package org.example.cipher;
+
+/**
+ * Ключ для каждого блока сегментированного файла. Ключи записываются в индекс контейнера,
+ * поэтому при чтении расписание не нужно — подойдёт любое, в том числе случайное.
+ */
+@FunctionalInterface
+public interface KeySchedule {
+
+    int keyFor(long block);
+
+    static KeySchedule fixed(int key) {
+        return block -> key;
+    }
+
+    // Ключ блока i — start + i·step по модулю длины алфавита
+    static KeySchedule rotating(int start, int step, int alphabetLength) {
+        return block -> (int) Math.floorMod(start + block * step, (long) alphabetLength);
+    }
+}
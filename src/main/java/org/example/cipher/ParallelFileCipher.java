@@ -0,0 +1,105 @@
+package org.example.cipher;
+
+import org.example.metrics.CipherEvent;
+import org.example.metrics.Counter;
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelFileCipher {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final Counter BYTES = Metrics.counter(Metrics.CIPHER_BYTES);
+    private static final LatencyHistogram FILE_TIME = Metrics.histogram("cipher.parallel");
+    private static final LatencyHistogram CHUNK_TIME = Metrics.histogram("cipher.parallel.chunk");
+
+    private final ByteCaesarCipher cipher;
+    private final Executor executor;
+    private final int chunkSize;
+    private final ThreadLocal<ByteBuffer> buffers;
+
+    public ParallelFileCipher(ByteCaesarCipher cipher) {
+        this(cipher, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public ParallelFileCipher(ByteCaesarCipher cipher, Executor executor, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Размер блока должен быть положительным: " + chunkSize);
+        }
+        this.cipher = cipher;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(chunkSize));
+    }
+
+    // Делит файл на независимые блоки по chunkSize байт, шифрует их параллельно
+    // и пишет каждый блок по его смещению позиционными записями. Возвращает число байт.
+    public long transform(FileChannel in, FileChannel out, int key, boolean decrypt) throws IOException {
+        CipherEvent event = new CipherEvent();
+        event.begin();
+        long t0 = System.nanoTime();
+        long size = in.size();
+        // таблицу строим заранее, чтобы рабочие потоки не ждали на блокировке
+        cipher.table(key, decrypt);
+
+        List<CompletableFuture<Void>> parts = new ArrayList<>();
+        for (long pos = 0; pos < size; pos += chunkSize) {
+            long start = pos;
+            int len = (int) Math.min(chunkSize, size - pos);
+            parts.add(CompletableFuture.runAsync(() -> transformChunk(in, out, start, len, key, decrypt), executor));
+        }
+        try {
+            CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        } finally {
+            FILE_TIME.recordSince(t0);
+            if (event.shouldCommit()) {
+                event.operation = "parallel";
+                event.alphabet = cipher.alphabet().id();
+                event.key = key;
+                event.decrypt = decrypt;
+                event.amount = size;
+                event.commit();
+            }
+        }
+        return size;
+    }
+
+    private void transformChunk(FileChannel in, FileChannel out, long start, int len, int key, boolean decrypt) {
+        long t0 = System.nanoTime();
+        ByteBuffer buf = buffers.get();
+        buf.clear().limit(len);
+        try {
+            while (buf.hasRemaining()) {
+                if (in.read(buf, start + buf.position()) < 0) {
+                    throw new IOException("Файл укоротился во время чтения на позиции " + (start + buf.position()));
+                }
+            }
+            buf.flip();
+            cipher.transform(buf.duplicate(), buf, key, decrypt);
+            buf.flip();
+            while (buf.hasRemaining()) {
+                out.write(buf, start + buf.position());
+            }
+            BYTES.add(len);
+            CHUNK_TIME.recordSince(t0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package org.example.cipher;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Контейнер с поблочным шифрованием: текст режется на блоки по blockSize байт,
+ * у каждого блока свой ключ из {@link KeySchedule}. Формат (big-endian):
+ * <pre>
+ *   int magic "CSSF", int версия, int длина заголовка вместе с индексом
+ *   UTF id алфавита, UTF символы алфавита, UTF кодировка
+ *   int blockSize, long длина текста, int число блоков
+ *   индекс: на блок long смещение, int длина, int ключ
+ *   данные блоков
+ * </pre>
+ * Кодировка однобайтовая, поэтому позиция символа совпадает с позицией байта, а любой диапазон
+ * расшифровывается позиционным чтением только нужных блоков, без прохода с начала файла.
+ */
+public final class SegmentedFile {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private static final int MAGIC = 0x43535346; // "CSSF"
+    private static final int VERSION = 1;
+    private static final int PREFIX = 12;
+    private static final int INDEX_ENTRY = 16;
+    // предел длины массива в JVM
+    private static final int MAX_HEADER = Integer.MAX_VALUE - 8;
+
+    private record Block(long offset, int length, int key) { }
+
+    private final FileChannel channel;
+    private final ByteCaesarCipher cipher;
+    private final int blockSize;
+    private final long length;
+    private final Block[] blocks;
+
+    private SegmentedFile(FileChannel channel, ByteCaesarCipher cipher, int blockSize, long length, Block[] blocks) {
+        this.channel = channel;
+        this.cipher = cipher;
+        this.blockSize = blockSize;
+        this.length = length;
+        this.blocks = blocks;
+    }
+
+    // Шифрует in в контейнер out; блоки обрабатываются параллельно в общем пуле ForkJoin.
+    // Возвращает длину текста в байтах.
+    public static long write(FileChannel in, FileChannel out, ByteCaesarCipher cipher, int blockSize,
+                             KeySchedule schedule) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Размер блока должен быть положительным: " + blockSize);
+        }
+        long size = in.size();
+        long count = (size + blockSize - 1) / blockSize;
+        // индекс целиком в заголовке, а длина заголовка записывается в int
+        long headerLong = header(cipher, blockSize, size, new Block[0]).length + count * INDEX_ENTRY;
+        if (headerLong > MAX_HEADER) {
+            throw new IOException("Слишком много блоков: " + count + ", увеличьте размер блока");
+        }
+        int n = cipher.alphabet().length();
+        int headerLength = (int) headerLong;
+
+        Block[] index = new Block[(int) count];
+        boolean[] checked = new boolean[n];
+        for (int i = 0; i < count; i++) {
+            long pos = (long) i * blockSize;
+            int key = Math.floorMod(schedule.keyFor(i), n);
+            if (!checked[key]) {
+                // таблица строится до записи: непредставимый символ алфавита — ошибка файла, а не задачи пула
+                cipher.requireRepresentable(key, false);
+                checked[key] = true;
+            }
+            index[i] = new Block(headerLength + pos, (int) Math.min(blockSize, size - pos), key);
+        }
+        out.truncate(0);
+        writeFully(out, ByteBuffer.wrap(header(cipher, blockSize, size, index)), 0);
+
+        List<CompletableFuture<Void>> parts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long src = (long) i * blockSize;
+            Block b = index[i];
+            parts.add(CompletableFuture.runAsync(() -> {
+                try {
+                    ByteBuffer buf = ByteBuffer.allocate(b.length);
+                    readFully(in, buf, src);
+                    buf.flip();
+                    cipher.transform(buf.duplicate(), buf, b.key, false);
+                    buf.flip();
+                    writeFully(out, buf, b.offset);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        join(parts);
+        return size;
+    }
+
+    public static SegmentedFile open(FileChannel channel) throws IOException {
+        ByteBuffer prefix = ByteBuffer.allocate(PREFIX);
+        readFully(channel, prefix, 0);
+        prefix.flip();
+        if (prefix.getInt() != MAGIC) {
+            throw new IOException("Файл не является сегментированным контейнером");
+        }
+        int version = prefix.getInt();
+        if (version != VERSION) {
+            throw new IOException("Неподдерживаемая версия контейнера " + version);
+        }
+        int headerLength = prefix.getInt();
+        if (headerLength < PREFIX || headerLength > channel.size()) {
+            throw new IOException("Повреждён заголовок контейнера: длина " + headerLength);
+        }
+        ByteBuffer header = ByteBuffer.allocate(headerLength - PREFIX);
+        readFully(channel, header, PREFIX);
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(header.array()))) {
+            String id = in.readUTF();
+            Alphabet alphabet = Alphabet.of(id, in.readUTF());
+            Charset charset = Charset.forName(in.readUTF());
+            int blockSize = in.readInt();
+            long length = in.readLong();
+            int count = in.readInt();
+            if (blockSize <= 0 || length < 0) {
+                throw new IOException("Повреждён заголовок контейнера: блок " + blockSize + ", длина текста " + length);
+            }
+            // индекс целиком лежит в заголовке, а число блоков определяется длиной текста
+            if (count < 0 || (long) count * INDEX_ENTRY > in.available()
+                    || count != (length + blockSize - 1) / blockSize) {
+                throw new IOException("Повреждён индекс контейнера: " + count + " блоков");
+            }
+            long size = channel.size();
+            Block[] blocks = new Block[count];
+            for (int i = 0; i < count; i++) {
+                Block b = new Block(in.readLong(), in.readInt(), in.readInt());
+                // readRange находит блок делением позиции на blockSize, поэтому длины должны быть точными
+                long expected = Math.min(blockSize, length - (long) i * blockSize);
+                if (b.length != expected || b.offset < headerLength || b.offset > size - b.length
+                        || b.key < 0 || b.key >= alphabet.length()) {
+                    throw new IOException("Повреждён индекс контейнера: блок " + i + " (смещение " + b.offset
+                            + ", длина " + b.length + ", ключ " + b.key + ") при размере файла " + size);
+                }
+                blocks[i] = b;
+            }
+            return new SegmentedFile(channel, new ByteCaesarCipher(charset, new CaesarCipher(alphabet)),
+                    blockSize, length, blocks);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Повреждён заголовок контейнера: " + ex.getMessage(), ex);
+        }
+    }
+
+    public Alphabet alphabet() {
+        return cipher.alphabet();
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public int blockSize() {
+        return blockSize;
+    }
+
+    public int blockCount() {
+        return blocks.length;
+    }
+
+    public int keyOf(int block) {
+        return blocks[block].key;
+    }
+
+    // Расшифровывает [from, from + count) открытого текста в out; читаются только затронутые блоки
+    public void readRange(long from, long count, WritableByteChannel out) throws IOException {
+        if (from < 0 || count < 0 || from + count > length) {
+            throw new IOException("Диапазон [" + from + ", " + (from + count) + ") вне текста длиной " + length);
+        }
+        ByteBuffer buf = ByteBuffer.allocate((int) Math.min(blockSize, Math.max(count, 1)));
+        long pos = from;
+        long end = from + count;
+        while (pos < end) {
+            Block b = blocks[(int) (pos / blockSize)];
+            int inBlock = (int) (pos % blockSize);
+            int len = (int) Math.min(b.length - inBlock, end - pos);
+            buf.clear().limit(len);
+            readFully(channel, buf, b.offset + inBlock);
+            buf.flip();
+            cipher.transform(buf.duplicate(), buf, b.key, true);
+            buf.flip();
+            while (buf.hasRemaining()) {
+                out.write(buf);
+            }
+            pos += len;
+        }
+    }
+
+    // Расшифровывает весь контейнер в out, блоки параллельно и позиционными записями
+    public long decryptAll(FileChannel out) throws IOException {
+        out.truncate(0);
+        List<CompletableFuture<Void>> parts = new ArrayList<>();
+        for (int i = 0; i < blocks.length; i++) {
+            Block b = blocks[i];
+            long dst = (long) i * blockSize;
+            parts.add(CompletableFuture.runAsync(() -> {
+                try {
+                    ByteBuffer buf = ByteBuffer.allocate(b.length);
+                    readFully(channel, buf, b.offset);
+                    buf.flip();
+                    cipher.transform(buf.duplicate(), buf, b.key, true);
+                    buf.flip();
+                    writeFully(out, buf, dst);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        join(parts);
+        return length;
+    }
+
+    private static byte[] header(ByteCaesarCipher cipher, int blockSize, long length, Block[] index)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(0); // длина заголовка, дописывается ниже
+            out.writeUTF(cipher.alphabet().id());
+            out.writeUTF(new String(cipher.alphabet().symbols()));
+            out.writeUTF(cipher.charset().name());
+            out.writeInt(blockSize);
+            out.writeLong(length);
+            out.writeInt(index.length);
+            for (Block b : index) {
+                // при подсчёте длины индекс ещё пуст: записи фиксированного размера
+                out.writeLong(b != null ? b.offset : 0);
+                out.writeInt(b != null ? b.length : 0);
+                out.writeInt(b != null ? b.key : 0);
+            }
+        }
+        byte[] header = bytes.toByteArray();
+        ByteBuffer.wrap(header).putInt(8, header.length);
+        return header;
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            if (in.read(buf, pos + buf.position()) < 0) {
+                throw new IOException("Неожиданный конец файла на позиции " + (pos + buf.position()));
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            out.write(buf, pos + buf.position());
+        }
+    }
+
+    private static void join(List<CompletableFuture<Void>> parts) throws IOException {
+        try {
+            CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+}
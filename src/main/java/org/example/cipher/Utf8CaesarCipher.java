@@ -0,0 +1,214 @@
+package org.example.cipher;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.LongConsumer;
+
+/**
+ * Шифр над байтами UTF-8 без CharsetDecoder/CharsetEncoder: последовательности из одного–трёх байт
+ * разбираются вручную, символ сдвигается по таблице {@link CaesarCipher#table} и кодируется обратно.
+ * Четырёхбайтовые, повреждённые и избыточно длинные последовательности копируются как есть.
+ * Если все символы алфавита кодируются одинаковым числом байт (кириллица — по два), длина текста
+ * не меняется и буфер можно шифровать на месте; иначе выход бывает длиннее или короче входа.
+ */
+public class Utf8CaesarCipher {
+
+    public static final int BUFFER_SIZE = 1 << 20;
+
+    private final CaesarCipher cipher;
+    private final boolean lengthPreserving;
+    private final int maxGrowth;
+
+    public Utf8CaesarCipher(CaesarCipher cipher) {
+        this.cipher = cipher;
+        Alphabet alphabet = cipher.alphabet();
+        int min = 3;
+        int max = 1;
+        for (int i = 0; i < alphabet.length(); i++) {
+            int n = encodedLength(alphabet.charAt(i));
+            min = Math.min(min, n);
+            max = Math.max(max, n);
+        }
+        this.lengthPreserving = min == max;
+        this.maxGrowth = (max + min - 1) / min;
+    }
+
+    public Alphabet alphabet() {
+        return cipher.alphabet();
+    }
+
+    // true — выход всегда той же длины, что и вход, и transform(buf, buf) допустим
+    public boolean isLengthPreserving() {
+        return lengthPreserving;
+    }
+
+    // Во сколько раз выход может быть длиннее входа
+    public int maxGrowth() {
+        return maxGrowth;
+    }
+
+    /**
+     * Переносит из src в dst целые последовательности, пока в dst есть место.
+     * Незаконченная последовательность в конце src остаётся непрочитанной — её дочитают
+     * со следующим блоком. src и dst — буферы на массивах; один и тот же буфер допустим
+     * только для {@link #isLengthPreserving()} алфавитов.
+     */
+    public void transform(ByteBuffer src, ByteBuffer dst, int key, boolean decrypt) {
+        if (!src.hasArray() || !dst.hasArray()) {
+            throw new IllegalArgumentException("Нужны буферы на массивах");
+        }
+        boolean inPlace = src.array() == dst.array();
+        if (inPlace && !lengthPreserving) {
+            throw new IllegalArgumentException("Алфавит " + alphabet().id() + " нельзя шифровать на месте");
+        }
+        char[] table = cipher.table(key, decrypt);
+        byte[] s = src.array();
+        byte[] d = dst.array();
+        int i = src.arrayOffset() + src.position();
+        int end = src.arrayOffset() + src.limit();
+        int o = dst.arrayOffset() + dst.position();
+        int oEnd = dst.arrayOffset() + dst.limit();
+
+        while (i < end) {
+            int b0 = s[i] & 0xFF;
+            int len = sequenceLength(b0);
+            int c = len == 1 && b0 < 0x80 ? b0 : -1;
+            // повреждённые и избыточно длинные формы копируются по одному байту: перекодирование
+            // изменило бы длину, а при шифровании на месте запись обогнала бы ещё не прочитанные байты
+            if (len > 1) {
+                int available = Math.min(len, end - i);
+                int k = 1;
+                while (k < available && continuation(s[i + k])) k++;
+                if (k < available) {
+                    len = 1;
+                } else if (available < len) {
+                    // последовательность может продолжиться в следующем блоке
+                    break;
+                } else if (len == 2) {
+                    c = (b0 & 0x1F) << 6 | (s[i + 1] & 0x3F);
+                    if (c < 0x80) {
+                        len = 1;
+                        c = -1;
+                    }
+                } else if (len == 3) {
+                    c = (b0 & 0x0F) << 12 | (s[i + 1] & 0x3F) << 6 | (s[i + 2] & 0x3F);
+                    if (c < 0x800 || Character.isSurrogate((char) c)) {
+                        len = 1;
+                        c = -1;
+                    }
+                }
+                // четырёхбайтовые последовательности не шифруются
+            }
+
+            char m = c >= 0 ? table[c] : 0;
+            if (c < 0 || m == c) {
+                if (o + len > oEnd) break;
+                if (!inPlace || o != i) System.arraycopy(s, i, d, o, len);
+                o += len;
+            } else {
+                int n = encodedLength(m);
+                if (o + n > oEnd) break;
+                if (n == 1) {
+                    d[o] = (byte) m;
+                } else if (n == 2) {
+                    d[o] = (byte) (0xC0 | m >> 6);
+                    d[o + 1] = (byte) (0x80 | m & 0x3F);
+                } else {
+                    d[o] = (byte) (0xE0 | m >> 12);
+                    d[o + 1] = (byte) (0x80 | m >> 6 & 0x3F);
+                    d[o + 2] = (byte) (0x80 | m & 0x3F);
+                }
+                o += n;
+            }
+            i += len;
+        }
+        src.position(i - src.arrayOffset());
+        dst.position(o - dst.arrayOffset());
+    }
+
+    // Шифрует поток целиком. progress получает число прочитанных байт; прерывание потока останавливает работу
+    public long transformChannel(ReadableByteChannel in, WritableByteChannel out, int key, boolean decrypt,
+                                 LongConsumer progress) throws IOException {
+        ByteBuffer src = ByteBuffer.allocate(BUFFER_SIZE);
+        ByteBuffer dst = lengthPreserving ? src : ByteBuffer.allocate(BUFFER_SIZE * maxGrowth);
+        long total = 0;
+        boolean eof = false;
+        while (!eof) {
+            int n = in.read(src);
+            if (n < 0) {
+                eof = true;
+            } else {
+                total += n;
+            }
+            src.flip();
+            int start = src.position();
+            if (lengthPreserving) {
+                transform(src, src, key, decrypt);
+                // на месте: отдаём обработанную часть, хвост переносим в начало
+                ByteBuffer done = src.duplicate();
+                done.position(start).limit(src.position());
+                writeFully(out, done);
+            } else {
+                dst.clear();
+                transform(src, dst, key, decrypt);
+                dst.flip();
+                writeFully(out, dst);
+            }
+            if (eof && src.hasRemaining()) {
+                // обрыв последовательности в конце файла — копируем как есть
+                writeFully(out, src);
+            }
+            src.compact();
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Операция прервана на байте " + total);
+            }
+            progress.accept(total);
+        }
+        return total;
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+    }
+
+    /**
+     * Длина начала блока без последовательности, которую может дополнить следующий блок: ведущий байт
+     * в последних трёх байтах, за которым до конца идут только байты продолжения. Именно на ней
+     * {@link #transform} останавливается; повреждённый ведущий байт в конце блока хвостом не считается.
+     */
+    public static int completeLength(ByteBuffer block) {
+        int end = block.limit();
+        for (int k = Math.max(0, end - 3); k < end; k++) {
+            int len = sequenceLength(block.get(k) & 0xFF);
+            if (len > 1 && k + len > end) {
+                int j = k + 1;
+                while (j < end && continuation(block.get(j))) j++;
+                if (j == end) {
+                    return k;
+                }
+            }
+        }
+        return end;
+    }
+
+    // Длина последовательности по ведущему байту; 1 — ASCII или байт, который последовательность не начинает
+    private static int sequenceLength(int b0) {
+        if ((b0 & 0xE0) == 0xC0) return 2;
+        if ((b0 & 0xF0) == 0xE0) return 3;
+        if ((b0 & 0xF8) == 0xF0) return 4;
+        return 1;
+    }
+
+    private static boolean continuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    private static int encodedLength(char ch) {
+        return ch < 0x80 ? 1 : ch < 0x800 ? 2 : 3;
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.cipher;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Загружается только через VectorKernel.load(): прямые ссылки на класс сломают запуск без модуля
+final class VectorCaesarKernel implements VectorKernel {
+
+    static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+    @Override
+    public int apply(char[] src, int off, int len, char[] dst, int dstOff, int base, int n, int shift) {
+        short lo = (short) base;
+        short hi = (short) (base + n);
+        short step = (short) shift;
+        short wrap = (short) n;
+        int upper = SPECIES.loopBound(len);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            ShortVector v = ShortVector.fromCharArray(SPECIES, src, off + i);
+            VectorMask<Short> inAlphabet = v.compare(VectorOperators.GE, lo).and(v.compare(VectorOperators.LT, hi));
+            ShortVector shifted = v.add(step);
+            shifted = shifted.sub(wrap, shifted.compare(VectorOperators.GE, hi));
+            v.blend(shifted, inAlphabet).intoCharArray(dst, dstOff + i);
+        }
+        return i;
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.cipher;
+
+import java.util.Arrays;
+
+/**
+ * SIMD-ядро сдвига для алфавитов, занимающих непрерывный диапазон символов [base, base + n).
+ * Символы вне диапазона остаются как есть, как и в табличном пути. Реализация на
+ * jdk.incubator.vector подгружается, только если модуль добавлен в JVM
+ * ({@code --add-modules jdk.incubator.vector}); отключается свойством {@code -Dcaesar.vector=false}.
+ */
+interface VectorKernel {
+
+    // Обрабатывает кратную ширине вектора часть блока и возвращает число обработанных символов;
+    // хвост досчитывает вызывающий табличным путём. shift — сдвиг вперёд, 0..n-1.
+    int apply(char[] src, int off, int len, char[] dst, int dstOff, int base, int n, int shift);
+
+    static VectorKernel load() {
+        if (!Boolean.parseBoolean(System.getProperty("caesar.vector", "true"))) {
+            return null;
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            VectorKernel kernel = (VectorKernel) Class.forName("org.example.cipher.VectorCaesarKernel")
+                    .getDeclaredConstructor().newInstance();
+            return selfCheck(kernel) ? kernel : null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    // Сверка с табличным путём по всем ключам на тексте с символами внутри и вне диапазона
+    private static boolean selfCheck(VectorKernel kernel) {
+        Alphabet alphabet = Alphabet.CYRILLIC_LOWER;
+        int base = alphabet.charAt(0);
+        int n = alphabet.length();
+        char[] src = new char[517];
+        for (int i = 0; i < src.length; i++) {
+            src[i] = (char) (i % 3 == 0 ? 'A' + i % 40 : base - 2 + (i * 7) % (n + 4));
+        }
+        char[] expected = new char[src.length];
+        char[] actual = new char[src.length];
+        CaesarCipher scalar = new CaesarCipher(alphabet, null);
+        for (int key = 0; key < n; key++) {
+            for (boolean decrypt : new boolean[]{false, true}) {
+                scalar.transform(src, 0, src.length, expected, 0, key, decrypt);
+                char[] table = scalar.table(key, decrypt);
+                int shift = decrypt ? (n - key) % n : key;
+                int done = kernel.apply(src, 0, src.length, actual, 0, base, n, shift);
+                for (int i = done; i < src.length; i++) {
+                    actual[i] = table[src[i]];
+                }
+                if (!Arrays.equals(expected, actual)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,599 @@
+package org.example.cli;
+
+import org.example.batch.BatchProcessor;
+import org.example.cipher.Alphabet;
+import org.example.cipher.ByteCaesarCipher;
+import org.example.cipher.CaesarCipher;
+import org.example.cipher.KeySchedule;
+import org.example.cipher.SegmentedFile;
+import org.example.crack.BruteForceCracker;
+import org.example.crack.DictionaryCracker;
+import org.example.crack.LanguageProfileCache;
+import org.example.crack.Message;
+import org.example.crack.MessageBatchCracker;
+import org.example.crack.NGramModel;
+import org.example.crack.StatAnalyzerCracker;
+import org.example.crack.WordIndex;
+import org.example.io.FileManager;
+import org.example.io.PipelineReport;
+import org.example.io.PipelinedFileCipher;
+import org.example.io.TextFileCipher;
+import org.example.metrics.JsonExporter;
+import org.example.search.CipherGrep;
+import org.example.search.SearchHit;
+import org.example.server.CipherServer;
+import org.example.server.LoadTestClient;
+import org.example.validation.ValidatedInput;
+import org.example.validation.ValidatedOutput;
+import org.example.validation.Validator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Неинтерактивный режим для конвейеров:
+ * <pre>
+ *   encrypt|decrypt --key N [--in FILE] [--out FILE] [--alphabet ID|FILE] [--checkpoint FILE]
+ *   brute [--in FILE] [--out FILE] [--alphabet ID|FILE]
+ *   stat --sample FILE [--in FILE] [--out FILE] [--alphabet ID|FILE]
+ *   messages --sample FILE [--in FILE] [--out FILE] [--alphabet ID|FILE]
+ *   dict --words FILE [--in FILE] [--out FILE] [--alphabet ID|FILE]
+ *   index --words FILE --out FILE [--alphabet ID|FILE]
+ *   grep --query TEXT (--in FILE | --dir DIR [--glob G]) [--key N] [--context C] [--threads N] [--out FILE]
+ *   pack --key N [--step S] [--block B] --in FILE --out FILE [--alphabet ID|FILE]
+ *   unpack --in FILE [--out FILE] [--from P] [--length L]
+ *   serve [--port N] [--threads N] [--sample FILE]
+ *   loadtest [--url URL] [--requests N] [--concurrency N] [--size N]
+ * </pre>
+ * С --checkpoint шифрование идёт конвейером {@link PipelinedFileCipher}: прерванный запуск с той же
+ * контрольной точкой продолжается с места остановки, по завершении печатается загрузка стадий.
+ * pack пишет {@link SegmentedFile}: ключ блока i равен N + i·S, unpack читает весь контейнер
+ * или только диапазон символов [P, P + L) без прохода с начала.
+ * dict взламывает по словарю: --words — список слов или готовый {@link WordIndex}, который index
+ * собирает заранее, чтобы при взломе он только отображался в память.
+ * grep ищет фразу в шифртексте без расшифровки ({@link CipherGrep}) и печатает «файл:смещение:ключ[:контекст]»,
+ * без --key — при всех ключах сразу; смещение — в байтах от начала файла.
+ * serve запускает {@link CipherServer} на loopback и работает до остановки процесса;
+ * loadtest нагружает его запросами /encrypt и печатает задержки и пропускную способность.
+ * messages взламывает каждую строку отдельно: строка — «id&lt;TAB&gt;шифртекст» или просто шифртекст
+ * (id — номер строки); выход — «id&lt;TAB&gt;ключ&lt;TAB&gt;уверенность&lt;TAB&gt;текст» в порядке готовности.
+ * Без --in/--out используются stdin/stdout, без --alphabet — {@link Alphabet#RUSSIAN}.
+ * Кодировка входного файла определяется автоматически, для stdin — Cp1251; --charset UTF-8|Cp1251|KOI8-R
+ * задаёт её явно. Результат пишется в той же кодировке;
+ * с --metrics FILE по завершении команды метрики сохраняются в JSON. Шифрование идёт потоком через прямой буфер;
+ * взломщикам нужно два прохода, поэтому stdin для них сохраняется во временный файл.
+ */
+public final class CommandMode {
+
+    private static final String USAGE = String.join("\n",
+            "Использование:",
+            "  encrypt|decrypt --key N [--in FILE] [--out FILE] [--checkpoint FILE]",
+            "       — с --checkpoint конвейерный режим с продолжением после прерывания",
+            "  brute [--in FILE] [--out FILE]",
+            "  stat --sample FILE [--in FILE] [--out FILE]",
+            "  messages --sample FILE [--in FILE] [--out FILE] — каждая строка взламывается отдельно",
+            "  dict --words FILE [--in FILE] [--out FILE] — взлом по словарю (список слов или индекс)",
+            "  index --words FILE --out FILE — собрать словарный индекс из списка слов",
+            "  grep --query TEXT (--in FILE | --dir DIR [--glob G]) [--key N] [--context C] [--threads N]",
+            "       — поиск фразы в зашифрованных файлах без расшифровки, без --key — по всем ключам",
+            "  pack --key N [--step S] [--block B] --in FILE --out FILE — контейнер с ключом на блок",
+            "  unpack --in FILE [--out FILE] [--from P] [--length L] — весь контейнер или диапазон",
+            "  serve [--port N] [--threads N] [--sample FILE] — локальный HTTP-сервис шифра",
+            "  loadtest [--url URL] [--requests N] [--concurrency N] [--size N] — нагрузка на serve",
+            "Общие флаги: --alphabet ru|ru-case|latin|cyr-lower|latin-lower|FILE (по умолчанию ru).",
+            "             --charset auto|UTF-8|Cp1251|KOI8-R (по умолчанию определяется по файлу),",
+            "             --metrics FILE — сохранить метрики в JSON после выполнения.",
+            "Без --in/--out читается stdin и пишется stdout.");
+
+    private CommandMode() { }
+
+    // Возвращает код выхода: 0 — успех, 1 — ошибка ввода-вывода, 2 — неверные аргументы
+    public static int run(String[] args) {
+        Options opts;
+        try {
+            opts = Options.parse(args);
+        } catch (IllegalArgumentException ex) {
+            System.err.println("Ошибка: " + ex.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        try {
+            Alphabet alphabet = opts.alphabet();
+            Validator validator = new Validator(alphabet);
+            ValidatedInput in = opts.in != null ? validator.ensureFileReadable(opts.in) : null;
+            ValidatedOutput out = opts.out != null ? validator.ensureParentWritable(opts.out) : null;
+            if (opts.metrics != null) validator.ensureParentWritable(opts.metrics);
+            if (opts.checkpoint != null) validator.ensureParentWritable(opts.checkpoint);
+
+            switch (opts.command) {
+                case "encrypt":
+                case "decrypt":
+                    validator.ensureKeyInRange(opts.key);
+                    transform(opts, alphabet, opts.command.equals("decrypt"));
+                    break;
+                case "brute":
+                    crack(in, out, validator, new BruteForceCracker(alphabet)::crackByBruteForce);
+                    break;
+                case "stat": {
+                    ValidatedInput sample = validator.ensureFileReadable(opts.sample);
+                    crack(in, out, validator, (i, o) -> new StatAnalyzerCracker(alphabet).crackByStatAnalysis(i, sample, o));
+                    break;
+                }
+                case "messages":
+                    validator.ensureFileReadable(opts.sample);
+                    crackMessages(opts, alphabet);
+                    break;
+                case "dict": {
+                    WordIndex words = WordIndex.load(validator.ensureFileReadable(opts.words).path(), alphabet);
+                    crack(in, out, validator, (i, o) -> new DictionaryCracker(alphabet).crackByDictionary(i, words, o));
+                    break;
+                }
+                case "index": {
+                    WordIndex words = WordIndex.load(validator.ensureFileReadable(opts.words).path(), alphabet);
+                    words.write(validator.ensureParentWritable(opts.out).path());
+                    System.err.println("Слов в индексе: " + words.size());
+                    break;
+                }
+                case "grep":
+                    if (opts.key != null) validator.ensureKeyInRange(opts.key);
+                    if (grep(opts, alphabet) == 0) {
+                        return 1;
+                    }
+                    break;
+                case "pack":
+                    validator.ensureKeyInRange(opts.key);
+                    pack(opts, alphabet);
+                    break;
+                case "unpack":
+                    unpack(opts);
+                    break;
+                case "serve":
+                    if (opts.sample != null) validator.ensureFileReadable(opts.sample);
+                    serve(opts);
+                    break;
+                case "loadtest":
+                    if (new LoadTestClient(opts.url, opts.requests, opts.concurrency, opts.size,
+                            opts.charset(null)).run(System.out) > 0) {
+                        return 1;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException(opts.command);
+            }
+            if (opts.metrics != null) {
+                new JsonExporter(opts.metrics).export();
+            }
+            return 0;
+        } catch (IOException ex) {
+            System.err.println("Ошибка: " + ex.getMessage());
+            return 1;
+        } catch (RuntimeException ex) {
+            // сбой в пуле (CompletionException) или неподходящий алфавит — сообщение вместо трассировки стека
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            System.err.println("Ошибка: " + cause.getMessage());
+            return 1;
+        }
+    }
+
+    // stdout для try-with-resources: close только сбрасывает буфер, сам System.out остаётся открытым
+    // для следующих сообщений и --metrics
+    private static OutputStream stdout() {
+        return new FilterOutputStream(System.out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
+    private static void transform(Options opts, Alphabet alphabet, boolean decrypt) throws IOException {
+        TextFileCipher files = new TextFileCipher(new CaesarCipher(alphabet));
+        if (opts.checkpoint != null) {
+            PipelineReport r = new PipelinedFileCipher(files, PipelinedFileCipher.DEFAULT_BLOCK_SIZE,
+                    PipelinedFileCipher.DEFAULT_RING_SIZE, PipelinedFileCipher.DEFAULT_CHECKPOINT_INTERVAL)
+                    .transform(opts.in, opts.out, opts.checkpoint, opts.key, decrypt, done -> { });
+            if (r.resumedFrom() > 0) {
+                System.err.printf("Продолжено с байта %d%n", r.resumedFrom());
+            }
+            System.err.printf(Locale.ROOT, "%.1f МБ/с; загрузка: чтение %.0f%%, шифрование %.0f%%, запись %.0f%%; узкое место — %s%n",
+                    r.megabytesPerSecond(), r.readUtilization() * 100, r.transformUtilization() * 100,
+                    r.writeUtilization() * 100, r.bottleneck());
+            return;
+        }
+        if (opts.in != null && opts.out != null && opts.charset == null) {
+            files.transform(opts.in, opts.out, opts.key, decrypt);
+            return;
+        }
+        Charset charset = opts.charset(opts.in);
+        try (ReadableByteChannel in = opts.in != null ? FileManager.newReadChannel(opts.in) : Channels.newChannel(System.in);
+             WritableByteChannel out = opts.out != null ? FileManager.newWriteChannel(opts.out) : Channels.newChannel(stdout())) {
+            files.transform(in, out, charset, opts.key, decrypt);
+        }
+        System.out.flush();
+    }
+
+    private static void crackMessages(Options opts, Alphabet alphabet) throws IOException {
+        NGramModel model = new NGramModel(new LanguageProfileCache(alphabet).get(opts.sample));
+        Charset charset = opts.charset(opts.in);
+        try (BufferedReader r = new BufferedReader(opts.in != null ? FileManager.newReader(opts.in, charset)
+                     : new InputStreamReader(System.in, charset));
+             BufferedWriter w = new BufferedWriter(opts.out != null ? FileManager.newWriter(opts.out, charset)
+                     : new OutputStreamWriter(stdout(), charset))) {
+            Iterator<String> lines = r.lines().iterator();
+            Iterator<Message> messages = new Iterator<>() {
+                long lineNo;
+
+                @Override
+                public boolean hasNext() {
+                    return lines.hasNext();
+                }
+
+                @Override
+                public Message next() {
+                    String line = lines.next();
+                    lineNo++;
+                    int tab = line.indexOf('\t');
+                    return tab >= 0 ? new Message(line.substring(0, tab), line.substring(tab + 1))
+                            : new Message(Long.toString(lineNo), line);
+                }
+            };
+            new MessageBatchCracker(model).crackAll(messages, result -> {
+                String record = String.format(Locale.ROOT, "%s\t%d\t%.4f\t%s%n",
+                        result.id(), result.key(), result.confidence(), result.plaintext());
+                synchronized (w) {
+                    w.write(record);
+                }
+            });
+        }
+    }
+
+    private static void pack(Options opts, Alphabet alphabet) throws IOException {
+        Charset charset = opts.charset(opts.in);
+        if (!ByteCaesarCipher.isSingleByte(charset)) {
+            throw new IOException("Контейнер поддерживает только однобайтовые кодировки, а файл в " + charset.name());
+        }
+        ByteCaesarCipher cipher = new ByteCaesarCipher(charset, new CaesarCipher(alphabet));
+        try (FileChannel in = FileManager.newReadChannel(opts.in);
+             FileChannel out = FileManager.newWriteChannel(opts.out)) {
+            SegmentedFile.write(in, out, cipher, opts.block,
+                    KeySchedule.rotating(opts.key, opts.step, alphabet.length()));
+        }
+    }
+
+    private static void unpack(Options opts) throws IOException {
+        try (FileChannel in = FileManager.newReadChannel(opts.in)) {
+            SegmentedFile file = SegmentedFile.open(in);
+            long length = opts.length != null ? opts.length : file.length() - opts.from;
+            if (opts.out != null && opts.from == 0 && length == file.length()) {
+                try (FileChannel out = FileManager.newWriteChannel(opts.out)) {
+                    file.decryptAll(out);
+                }
+                return;
+            }
+            try (WritableByteChannel out = opts.out != null ? FileManager.newWriteChannel(opts.out)
+                    : Channels.newChannel(stdout())) {
+                file.readRange(opts.from, length, out);
+            }
+            System.out.flush();
+        }
+    }
+
+    @FunctionalInterface
+    private interface CrackTask {
+        void run(ValidatedInput input, ValidatedOutput output) throws IOException;
+    }
+
+    // Возвращает число совпадений; как и grep, без совпадений команда завершается с кодом 1
+    private static long grep(Options opts, Alphabet alphabet) throws IOException {
+        List<Path> files;
+        AtomicLong unreadable = new AtomicLong();
+        if (opts.in != null) {
+            files = List.of(opts.in);
+        } else {
+            if (!Files.isDirectory(opts.dir)) {
+                throw new IOException("Указанный путь не является папкой: " + opts.dir);
+            }
+            files = new ArrayList<>();
+            BatchProcessor.walk(opts.dir, opts.glob, files::add, (path, ex) -> unreadable.incrementAndGet());
+            files.sort(null);
+        }
+        CipherGrep grep = new CipherGrep(alphabet, opts.query,
+                opts.key != null ? opts.key : CipherGrep.ALL_KEYS, opts.context);
+        AtomicLong failed = new AtomicLong();
+        long found;
+        // контекст из файлов в разных кодировках печатается в одной: --charset или по умолчанию
+        Charset charset = opts.charset != null ? opts.charset : FileManager.charset();
+        try (BufferedWriter w = opts.out != null
+                ? Files.newBufferedWriter(opts.out, charset)
+                : new BufferedWriter(new OutputStreamWriter(stdout(), charset))) {
+            IOException[] writeError = new IOException[1];
+            found = grep.search(files, opts.charset, opts.threads, hit -> {
+                synchronized (w) {
+                    try {
+                        w.write(format(hit));
+                    } catch (IOException ex) {
+                        writeError[0] = ex;
+                    }
+                }
+            }, ex -> {
+                failed.incrementAndGet();
+                System.err.println("Ошибка: " + ex.getMessage());
+            });
+            if (writeError[0] != null) throw writeError[0];
+        }
+        if (failed.get() + unreadable.get() > 0 && failed.get() == files.size()) {
+            throw new IOException("Не удалось просмотреть ни один файл");
+        }
+        return found;
+    }
+
+    private static String format(SearchHit hit) {
+        return hit.file() + ":" + hit.offset() + ":" + hit.key()
+                + (hit.context() != null ? ":" + hit.context() : "") + "\n";
+    }
+
+    // Сервис работает до завершения процесса; остановка по сигналу освобождает порт и пул
+    private static void serve(Options opts) throws IOException {
+        CipherServer server = new CipherServer(opts.port, opts.threads, opts.sample);
+        server.start();
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            stopped.countDown();
+        }));
+        System.err.println("Сервис слушает http://127.0.0.1:" + server.port() + "/");
+        try {
+            stopped.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Сервис прерван");
+        }
+    }
+
+    // Без --in/--out взломщик работает с временными файлами: stdin копируется во вход, выход — в stdout
+    private static void crack(ValidatedInput in, ValidatedOutput out, Validator validator, CrackTask task)
+            throws IOException {
+        Path tmpIn = null;
+        Path tmpOut = null;
+        try {
+            if (in == null) {
+                tmpIn = Files.createTempFile("caesar-in", ".txt");
+                Files.copy(System.in, tmpIn, StandardCopyOption.REPLACE_EXISTING);
+                in = validator.ensureFileReadable(tmpIn);
+            }
+            if (out == null) {
+                tmpOut = Files.createTempFile("caesar-out", ".txt");
+                out = validator.ensureParentWritable(tmpOut);
+            }
+            task.run(in, out);
+            if (tmpOut != null) {
+                Files.copy(tmpOut, System.out);
+                System.out.flush();
+            }
+        } finally {
+            if (tmpIn != null) Files.deleteIfExists(tmpIn);
+            if (tmpOut != null) Files.deleteIfExists(tmpOut);
+        }
+    }
+
+    private static final class Options {
+        String command;
+        Integer key;
+        Path in;
+        Path out;
+        Path sample;
+        Path words;
+        Path checkpoint;
+        Path dir;
+        String glob = "*";
+        String query;
+        int context;
+        Path metrics;
+        Charset charset;
+        int step;
+        int block = SegmentedFile.DEFAULT_BLOCK_SIZE;
+        long from;
+        Long length;
+        String alphabet = "ru";
+        int port = CipherServer.DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        URI url = URI.create("http://127.0.0.1:" + CipherServer.DEFAULT_PORT + "/encrypt?key=3");
+        int requests = 1000;
+        int concurrency = 8;
+        int size = 4096;
+
+        // Явная --charset, иначе определённая по файлу, а для stdin — кодировка по умолчанию
+        Charset charset(Path file) throws IOException {
+            if (charset != null) return charset;
+            return file != null ? FileManager.charsetFor(file) : FileManager.charset();
+        }
+
+        Alphabet alphabet() throws IOException {
+            if (Files.isRegularFile(Paths.get(alphabet))) {
+                return Alphabet.load(Paths.get(alphabet));
+            }
+            try {
+                return Alphabet.byId(alphabet);
+            } catch (IllegalArgumentException ex) {
+                throw new IOException(ex.getMessage(), ex);
+            }
+        }
+
+        static Options parse(String[] args) {
+            Options o = new Options();
+            o.command = args[0];
+            for (int i = 1; i < args.length; i++) {
+                String flag = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Нет значения для " + flag);
+                }
+                String value = args[++i];
+                switch (flag) {
+                    case "--key":
+                        try {
+                            o.key = Integer.parseInt(value);
+                        } catch (NumberFormatException ex) {
+                            throw new IllegalArgumentException("Ключ должен быть числом: " + value);
+                        }
+                        break;
+                    case "--in":
+                        o.in = Paths.get(value).toAbsolutePath();
+                        break;
+                    case "--out":
+                        o.out = Paths.get(value).toAbsolutePath();
+                        break;
+                    case "--sample":
+                        o.sample = Paths.get(value).toAbsolutePath();
+                        break;
+                    case "--checkpoint":
+                        o.checkpoint = Paths.get(value).toAbsolutePath();
+                        break;
+                    case "--query":
+                        o.query = value;
+                        break;
+                    case "--dir":
+                        o.dir = Paths.get(value).toAbsolutePath();
+                        break;
+                    case "--glob":
+                        o.glob = value;
+                        break;
+                    case "--context":
+                        o.context = parseNumber(flag, value).intValue();
+                        if (o.context < 0) throw new IllegalArgumentException("--context не может быть отрицательным");
+                        break;
+                    case "--words":
+                        o.words = Paths.get(value).toAbsolutePath();
+                        break;
+                    case "--step":
+                        o.step = parseNumber(flag, value).intValue();
+                        break;
+                    case "--block":
+                        o.block = parseNumber(flag, value).intValue();
+                        if (o.block <= 0) throw new IllegalArgumentException("Размер блока должен быть положительным");
+                        break;
+                    case "--from":
+                        o.from = parseNumber(flag, value);
+                        break;
+                    case "--length":
+                        o.length = parseNumber(flag, value);
+                        break;
+                    case "--charset":
+                        o.charset = value.equalsIgnoreCase("auto") ? null : FileManager.charset(value);
+                        break;
+                    case "--metrics":
+                        o.metrics = Paths.get(value).toAbsolutePath();
+                        break;
+                    case "--alphabet":
+                        o.alphabet = value;
+                        break;
+                    case "--port":
+                        o.port = parseNumber(flag, value).intValue();
+                        if (o.port < 0 || o.port > 65535) throw new IllegalArgumentException("Неверный порт: " + value);
+                        break;
+                    case "--threads":
+                        o.threads = parsePositive(flag, value);
+                        break;
+                    case "--url":
+                        try {
+                            o.url = URI.create(value);
+                        } catch (IllegalArgumentException ex) {
+                            throw new IllegalArgumentException("Неверный адрес: " + value);
+                        }
+                        break;
+                    case "--requests":
+                        o.requests = parsePositive(flag, value);
+                        break;
+                    case "--concurrency":
+                        o.concurrency = parsePositive(flag, value);
+                        break;
+                    case "--size":
+                        o.size = parsePositive(flag, value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Неизвестный флаг: " + flag);
+                }
+            }
+            switch (o.command) {
+                case "encrypt":
+                case "decrypt":
+                    if (o.key == null) throw new IllegalArgumentException("Для " + o.command + " нужен --key");
+                    if (o.checkpoint != null && (o.in == null || o.out == null)) {
+                        throw new IllegalArgumentException("С --checkpoint нужны --in и --out");
+                    }
+                    break;
+                case "stat":
+                case "messages":
+                    if (o.sample == null) throw new IllegalArgumentException("Для " + o.command + " нужен --sample");
+                    break;
+                case "brute":
+                    break;
+                case "grep":
+                    if (o.query == null || o.query.isEmpty()) throw new IllegalArgumentException("Для grep нужен --query");
+                    if ((o.in == null) == (o.dir == null)) throw new IllegalArgumentException("Для grep нужен --in или --dir");
+                    break;
+                case "dict":
+                    if (o.words == null) throw new IllegalArgumentException("Для dict нужен --words");
+                    break;
+                case "index":
+                    if (o.words == null || o.out == null) throw new IllegalArgumentException("Для index нужны --words и --out");
+                    break;
+                case "pack":
+                    // контейнер пишется и читается позиционно, stdin/stdout не подходят
+                    if (o.key == null) throw new IllegalArgumentException("Для pack нужен --key");
+                    if (o.in == null || o.out == null) throw new IllegalArgumentException("Для pack нужны --in и --out");
+                    break;
+                case "unpack":
+                    if (o.in == null) throw new IllegalArgumentException("Для unpack нужен --in");
+                    break;
+                case "serve":
+                case "loadtest":
+                    break;
+                default:
+                    throw new IllegalArgumentException("Неизвестная команда: " + o.command);
+            }
+            return o;
+        }
+
+        private static int parsePositive(String flag, String value) {
+            long n = parseNumber(flag, value);
+            if (n <= 0 || n > Integer.MAX_VALUE) throw new IllegalArgumentException(flag + " должен быть положительным");
+            return (int) n;
+        }
+
+        private static Long parseNumber(String flag, String value) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException(flag + " должен быть числом: " + value);
+            }
+        }
+    }
+}
@@ -1,93 +1,152 @@
 package org.example.crack;
 
+import org.example.cipher.Alphabet;
 import org.example.cipher.CaesarCipher;
 import org.example.io.FileManager;
+import org.example.metrics.Counter;
+import org.example.metrics.CrackEvent;
+import org.example.metrics.KeyScoreEvent;
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.Metrics;
+import org.example.validation.ValidatedInput;
+import org.example.validation.ValidatedOutput;
 import org.example.validation.Validator;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.Charset;
 import java.nio.file.Path;
-import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Supplier;
 
 public class BruteForceCracker {
-    private final CaesarCipher cipher = new CaesarCipher();
-    private static final Set<Character> VOWELS = Set.of(
-            'а','е','ё','и','о','у','ы','э','ю','я',
-            'А','Е','Ё','И','О','У','Ы','Э','Ю','Я'
-    );
 
-    private static final double PENALTY = 0.5;
+    private static final Counter CHARS = Metrics.counter(Metrics.CRACK_CHARS);
+    private static final Counter OUTSIDE = Metrics.counter(Metrics.CRACK_CHARS_OUTSIDE);
+    private static final LatencyHistogram READ_TIME = Metrics.histogram("brute.read");
+    private static final LatencyHistogram SCORE_TIME = Metrics.histogram("brute.score");
+    private static final LatencyHistogram WRITE_TIME = Metrics.histogram("brute.write");
 
-    public void crackByBruteForce(Path input, Path output, Validator validator) throws IOException {
-        validator.ensureFileReadable(input);
-        validator.ensureParentWritable(output);
+    private final CaesarCipher cipher;
+    private final Supplier<? extends TextScorer> scorerFactory;
+    // Слоговая оценка по умолчанию знает только кириллицу: для других алфавитов все ключи равны
+    private final boolean scorerUnsupported;
+
+    public BruteForceCracker() {
+        this(Alphabet.RUSSIAN);
+    }
+
+    public BruteForceCracker(Alphabet alphabet) {
+        this(alphabet, SyllableScorer::new, !SyllableScorer.supports(alphabet));
+    }
+
+    public BruteForceCracker(Alphabet alphabet, Supplier<? extends TextScorer> scorerFactory) {
+        this(alphabet, scorerFactory, false);
+    }
+
+    private BruteForceCracker(Alphabet alphabet, Supplier<? extends TextScorer> scorerFactory, boolean scorerUnsupported) {
+        this.cipher = new CaesarCipher(alphabet);
+        this.scorerFactory = scorerFactory;
+        this.scorerUnsupported = scorerUnsupported;
+    }
+
+    // Возвращает найденный ключ
+    public int crackByBruteForce(Path input, Path output, Validator validator) throws IOException {
+        return crackByBruteForce(validator.ensureFileReadable(input), validator.ensureParentWritable(output));
+    }
+
+    // Пути уже проверены валидатором, повторно файловая система не опрашивается
+    public int crackByBruteForce(ValidatedInput validInput, ValidatedOutput validOutput) throws IOException {
+        Path input = validInput.path();
+        Path output = validOutput.path();
+        if (scorerUnsupported) {
+            throw new IOException("Слоговая оценка работает только с кириллическими алфавитами, а не с "
+                    + cipher.alphabet().id() + ": используйте stat, dict или свою оценку");
+        }
+
+        CrackEvent event = new CrackEvent();
+        event.begin();
+        // результат пишется в кодировке шифртекста
+        Charset charset = FileManager.charsetFor(input);
+
+        // Один проход по шифртексту: оценки всех ключей считаются одновременно
+        TextScorer[] scorers = scoreAllKeys(input, charset, event);
 
-        int N = org.example.cipher.Alphabet.length();
         int bestKey = 0;
         double bestScore = Double.NEGATIVE_INFINITY;
-        String bestText = "";
-
-        for (int key = 0; key < N; key++) {
-            String text = decryptToString(input, key);
-            double score = scoreBySyllables(text);
+        for (int key = 0; key < scorers.length; key++) {
+            double score = scorers[key].score();
+            KeyScoreEvent.emit("brute", key, score);
             if (score > bestScore) {
                 bestScore = score;
                 bestKey = key;
-                bestText = text;
             }
         }
 
-        try (Writer w = FileManager.newWriter(output)) {
+        // Расшифровываем только победителя
+        long t0 = System.nanoTime();
+        try (Reader r = FileManager.newReader(input, charset);
+             Writer w = FileManager.newWriter(output, charset)) {
             w.write("Найден ключ: " + bestKey + "\n");
-            w.write(String.format("Оценка слогов: %.3f%n%n", bestScore));
-            w.write(bestText);
+            w.write(String.format("%s: %.3f%n%n", scorers[bestKey].label(), bestScore));
+            cipher.transformStream(r, w, bestKey, /*decrypt*/ true);
         }
-    }
+        long writeNanos = System.nanoTime() - t0;
+        WRITE_TIME.record(writeNanos);
 
-    private String decryptToString(Path input, int key) throws IOException {
-        try (Reader r = FileManager.newReader(input)) {
-            StringWriter buf = new StringWriter();
-            cipher.transformStream(r, buf, key, /*decrypt*/ true);
-            return buf.toString();
+        if (event.shouldCommit()) {
+            event.method = "brute";
+            event.key = bestKey;
+            event.score = bestScore;
+            event.writeNanos = writeNanos;
+            event.commit();
         }
+        return bestKey;
     }
 
-    private double scoreBySyllables(String text) {
-        Matcher m = Pattern.compile("[А-ЯЁа-яё]+").matcher(text);
-        double totalSyllables = 0, totalBad = 0;
-        while (m.find()) {
-            String word = m.group();
-            List<String> sylls = splitToSyllables(word);
-            totalSyllables += sylls.size();
-
-            if (sylls.isEmpty()) totalBad += 1;
+    // Время чтения и оценки копится поблочно и попадает в гистограммы одним значением на файл
+    private TextScorer[] scoreAllKeys(Path input, Charset charset, CrackEvent event) throws IOException {
+        Alphabet alphabet = cipher.alphabet();
+        int n = cipher.alphabet().length();
+        TextScorer[] scorers = new TextScorer[n];
+        for (int key = 0; key < n; key++) {
+            scorers[key] = scorerFactory.get();
         }
-        return totalSyllables - totalBad * PENALTY;
-    }
-
-    private List<String> splitToSyllables(String word) {
-        List<String> result = new ArrayList<>();
-        int i = 0, n = word.length();
-        while (i < n) {
-
-            int start = i;
-            while (i < n && !VOWELS.contains(word.charAt(i))) i++;
 
-            int vcount = 0;
-            while (i < n && VOWELS.contains(word.charAt(i)) && vcount < 2) {
-                i++; vcount++;
+        char[] buf = new char[CaesarCipher.BLOCK_SIZE];
+        char[] plain = new char[buf.length];
+        long readNanos = 0;
+        long scoreNanos = 0;
+        long chars = 0;
+        long outside = 0;
+        try (Reader r = FileManager.newReader(input, charset)) {
+            int len;
+            long t0 = System.nanoTime();
+            while ((len = r.read(buf, 0, buf.length)) != -1) {
+                long t1 = System.nanoTime();
+                readNanos += t1 - t0;
+                int blockOutside = 0;
+                for (int i = 0; i < len; i++) {
+                    if (!alphabet.contains(buf[i])) blockOutside++;
+                }
+                for (int key = 0; key < n; key++) {
+                    cipher.transform(buf, 0, len, plain, 0, key, true);
+                    scorers[key].feed(plain, 0, len);
+                }
+                chars += len;
+                outside += blockOutside;
+                t0 = System.nanoTime();
+                scoreNanos += t0 - t1;
             }
-            if (vcount == 0) {
-                break;
-            }
-
-            while (i < n && !VOWELS.contains(word.charAt(i))) i++;
-            result.add(word.substring(start, i));
         }
-        return result;
+        CHARS.add(chars);
+        OUTSIDE.add(outside);
+        READ_TIME.record(readNanos);
+        SCORE_TIME.record(scoreNanos);
+        event.chars = chars;
+        event.outside = outside;
+        event.readNanos = readNanos;
+        event.scoreNanos = scoreNanos;
+        return scorers;
     }
 }
@@ -0,0 +1,7 @@
+package org.example.crack;
+
+/**
+ * Результат взлома одного сообщения: найденный ключ, его логарифм правдоподобия,
+ * уверенность (как в {@link KeyCandidate}) и расшифрованный текст.
+ */
+public record CrackedMessage(String id, int key, double score, double confidence, String plaintext) { }
@@ -0,0 +1,13 @@
+package org.example.crack;
+
+/**
+ * Итог словарного взлома: ключ, число букв в словарных словах и всего букв в оценённом фрагменте,
+ * сколько ключей отброшено до конца фрагмента.
+ */
+public record DictionaryCrackResult(int key, long hitLetters, long letters, int keysPruned) {
+
+    // Доля букв фрагмента, покрытая словарными словами при найденном ключе
+    public double coverage() {
+        return letters == 0 ? 0 : (double) hitLetters / letters;
+    }
+}
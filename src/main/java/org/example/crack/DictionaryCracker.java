@@ -0,0 +1,209 @@
+package org.example.crack;
+
+import org.example.cipher.Alphabet;
+import org.example.cipher.CaesarCipher;
+import org.example.io.FileManager;
+import org.example.metrics.Counter;
+import org.example.metrics.CrackEvent;
+import org.example.metrics.KeyScoreEvent;
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.Metrics;
+import org.example.validation.ValidatedInput;
+import org.example.validation.ValidatedOutput;
+import org.example.validation.Validator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+
+/**
+ * Взлом по словарю: ключ, при котором больше букв текста складывается в словарные слова, побеждает.
+ * Мусор из кириллических букв проходит слоговую проверку, но почти не даёт словарных слов.
+ * <p>
+ * Оценивается только начало шифртекста (по умолчанию 64К символов), переведённое в индексы алфавита.
+ * Для каждого ключа хеш слова считается на лету по индексам открытого текста ({@link WordIndex#step}),
+ * без строк и без выделения памяти. Ключ бросается, как только даже полное совпадение остатка
+ * фрагмента не даст ему обойти лучший ключ; первым проверяется ключ, переводящий самый частый
+ * символ шифртекста в пробел, поэтому остальные обычно отсекаются рано.
+ */
+public class DictionaryCracker {
+
+    public static final int DEFAULT_SAMPLE_CHARS = 1 << 16;
+    // Однобуквенные слова встречаются при любом ключе и ничего не различают
+    public static final int MIN_WORD_LENGTH = 2;
+
+    private static final Counter CHARS = Metrics.counter(Metrics.CRACK_CHARS);
+    private static final Counter OUTSIDE = Metrics.counter(Metrics.CRACK_CHARS_OUTSIDE);
+    private static final Counter PRUNED = Metrics.counter("dict.keys.pruned");
+    private static final LatencyHistogram READ_TIME = Metrics.histogram("dict.read");
+    private static final LatencyHistogram SCORE_TIME = Metrics.histogram("dict.score");
+    private static final LatencyHistogram WRITE_TIME = Metrics.histogram("dict.write");
+
+    private final CaesarCipher cipher;
+    private final int sampleChars;
+
+    public DictionaryCracker() {
+        this(Alphabet.RUSSIAN);
+    }
+
+    public DictionaryCracker(Alphabet alphabet) {
+        this(alphabet, DEFAULT_SAMPLE_CHARS);
+    }
+
+    public DictionaryCracker(Alphabet alphabet, int sampleChars) {
+        if (sampleChars <= 0) {
+            throw new IllegalArgumentException("Размер фрагмента должен быть положительным: " + sampleChars);
+        }
+        this.cipher = new CaesarCipher(alphabet);
+        this.sampleChars = sampleChars;
+    }
+
+    public DictionaryCrackResult crackByDictionary(Path input, WordIndex words, Path output, Validator validator)
+            throws IOException {
+        return crackByDictionary(validator.ensureFileReadable(input), words, validator.ensureParentWritable(output));
+    }
+
+    // Пути уже проверены валидатором, повторно файловая система не опрашивается
+    public DictionaryCrackResult crackByDictionary(ValidatedInput validInput, WordIndex words, ValidatedOutput validOutput)
+            throws IOException {
+        Path input = validInput.path();
+        Path output = validOutput.path();
+
+        CrackEvent event = new CrackEvent();
+        event.begin();
+        Charset charset = FileManager.charsetFor(input);
+        DictionaryCrackResult result;
+        try (Reader r = FileManager.newReader(input, charset)) {
+            result = detectKey(r, words, event);
+        }
+
+        long t0 = System.nanoTime();
+        try (Reader r = FileManager.newReader(input, charset);
+             Writer w = FileManager.newWriter(output, charset)) {
+            w.write("Найден ключ: " + result.key() + "\n");
+            w.write(String.format("Словарное покрытие: %.1f%% (%d из %d букв)%n%n",
+                    result.coverage() * 100, result.hitLetters(), result.letters()));
+            cipher.transformStream(r, w, result.key(), /*decrypt*/ true);
+        }
+        long writeNanos = System.nanoTime() - t0;
+        WRITE_TIME.record(writeNanos);
+
+        if (event.shouldCommit()) {
+            event.method = "dict";
+            event.key = result.key();
+            event.score = result.coverage();
+            event.writeNanos = writeNanos;
+            event.commit();
+        }
+        return result;
+    }
+
+    public DictionaryCrackResult detectKey(Reader reader, WordIndex words) throws IOException {
+        return detectKey(reader, words, new CrackEvent());
+    }
+
+    private DictionaryCrackResult detectKey(Reader reader, WordIndex words, CrackEvent event) throws IOException {
+        Alphabet alphabet = cipher.alphabet();
+        int n = alphabet.length();
+        if (!words.alphabet().equals(alphabet)) {
+            throw new IOException("Словарь собран для другого алфавита: " + words.alphabet());
+        }
+
+        // Фрагмент в индексах алфавита, -1 — символ вне алфавита
+        long t0 = System.nanoTime();
+        char[] buf = new char[Math.min(sampleChars, CaesarCipher.BLOCK_SIZE)];
+        int[] text = new int[sampleChars];
+        int[] freq = new int[n];
+        int len = 0;
+        int outside = 0;
+        int read;
+        while (len < sampleChars && (read = reader.read(buf, 0, Math.min(buf.length, sampleChars - len))) != -1) {
+            for (int i = 0; i < read; i++) {
+                int idx = alphabet.indexOf(buf[i]);
+                text[len++] = idx;
+                if (idx >= 0) freq[idx]++;
+                else outside++;
+            }
+        }
+        long readNanos = System.nanoTime() - t0;
+
+        int[] fold = WordIndex.letterIndex(alphabet);
+        int[] plain = new int[n];
+        int guess = firstGuess(alphabet, freq);
+        int bestKey = guess;
+        long best = -1;
+        long bestLetters = 0;
+        int pruned = 0;
+        for (int i = 0; i < n; i++) {
+            // после первой догадки — остальные ключи по порядку
+            int key = i == 0 ? guess : (i <= guess ? i - 1 : i);
+            for (int c = 0; c < n; c++) {
+                plain[c] = fold[(c - key + n) % n];
+            }
+            long score = score(text, len, plain, words, best);
+            if (score < 0) {
+                pruned++;
+                continue;
+            }
+            KeyScoreEvent.emit("dict", key, score);
+            if (score > best) {
+                best = score;
+                bestKey = key;
+            }
+        }
+        long letters = 0;
+        for (int c = 0; c < n; c++) {
+            if (fold[(c - bestKey + n) % n] >= 0) letters += freq[c];
+        }
+        long scoreNanos = System.nanoTime() - t0 - readNanos;
+
+        CHARS.add(len);
+        OUTSIDE.add(outside);
+        PRUNED.add(pruned);
+        READ_TIME.record(readNanos);
+        SCORE_TIME.record(scoreNanos);
+        event.chars = len;
+        event.outside = outside;
+        event.readNanos = readNanos;
+        event.scoreNanos = scoreNanos;
+        return new DictionaryCrackResult(bestKey, best, letters, pruned);
+    }
+
+    // Число букв в словарных словах; -1, если ключ уже не может превысить best
+    private static long score(int[] text, int len, int[] plain, WordIndex words, long best) {
+        long score = 0;
+        long state = WordIndex.SEED;
+        int wordLength = 0;
+        for (int i = 0; i <= len; i++) {
+            int letter = i < len && text[i] >= 0 ? plain[text[i]] : -1;
+            if (letter >= 0) {
+                state = WordIndex.step(state, letter);
+                wordLength++;
+                continue;
+            }
+            if (wordLength >= MIN_WORD_LENGTH && words.contains(WordIndex.finish(state, wordLength))) {
+                score += wordLength;
+            }
+            if (wordLength > 0 && score + (len - i) <= best) {
+                return -1;
+            }
+            state = WordIndex.SEED;
+            wordLength = 0;
+        }
+        return score;
+    }
+
+    // Ключ, при котором самый частый символ шифртекста — пробел; без пробела в алфавите — 0
+    private static int firstGuess(Alphabet alphabet, int[] freq) {
+        int space = alphabet.indexOf(' ');
+        if (space < 0) return 0;
+        int top = 0;
+        for (int c = 1; c < freq.length; c++) {
+            if (freq[c] > freq[top]) top = c;
+        }
+        int n = freq.length;
+        return ((top - space) % n + n) % n;
+    }
+}
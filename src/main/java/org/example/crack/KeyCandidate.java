@@ -0,0 +1,7 @@
+package org.example.crack;
+
+/**
+ * Ключ-кандидат с оценкой (логарифм правдоподобия) и уверенностью —
+ * апостериорной вероятностью ключа среди всех ключей алфавита.
+ */
+public record KeyCandidate(int key, double score, double confidence) { }
@@ -0,0 +1,210 @@
+package org.example.crack;
+
+import org.example.cipher.Alphabet;
+import org.example.cipher.CaesarCipher;
+import org.example.io.FileManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Скомпилированный языковой профиль: нормированные частоты символов алфавита
+ * и, по желанию, биграмм и триграмм (плоские массивы n*n и n*n*n,
+ * индекс (first * n + second) * n + third). Строится один раз из образца
+ * и хранится в компактном двоичном файле.
+ */
+public final class LanguageProfile {
+
+    private static final int MAGIC = 0x43534C50; // "CSLP"
+    private static final int VERSION = 2;
+    // триграммы — плоский массив n*n*n, его длина должна помещаться в int
+    private static final int MAX_SYMBOLS = 1290;
+
+    private final Alphabet alphabet;
+    private final double[] unigrams;
+    private final double[] bigrams;
+    private final double[] trigrams;
+
+    private LanguageProfile(Alphabet alphabet, double[] unigrams, double[] bigrams, double[] trigrams) {
+        this.alphabet = alphabet;
+        this.unigrams = unigrams;
+        this.bigrams = bigrams;
+        this.trigrams = trigrams;
+    }
+
+    public Alphabet alphabet() {
+        return alphabet;
+    }
+
+    public double[] unigrams() {
+        return unigrams.clone();
+    }
+
+    public boolean hasBigrams() {
+        return bigrams != null;
+    }
+
+    public double[] bigrams() {
+        return bigrams == null ? null : bigrams.clone();
+    }
+
+    public boolean hasTrigrams() {
+        return trigrams != null;
+    }
+
+    public double[] trigrams() {
+        return trigrams == null ? null : trigrams.clone();
+    }
+
+    // Доступ без копирования для горячих циклов внутри пакета
+    double[] unigramsView() {
+        return unigrams;
+    }
+
+    double[] bigramsView() {
+        return bigrams;
+    }
+
+    double[] trigramsView() {
+        return trigrams;
+    }
+
+    public static LanguageProfile fromSample(Path sample, Alphabet alphabet, boolean withNGrams) throws IOException {
+        try (Reader r = FileManager.newReader(sample)) {
+            return fromSample(r, alphabet, withNGrams);
+        }
+    }
+
+    public static LanguageProfile fromSample(Reader reader, Alphabet alphabet, boolean withNGrams) throws IOException {
+        int n = alphabet.length();
+        double[] counts = new double[n];
+        double[] pairs = withNGrams ? new double[n * n] : null;
+        double[] triples = withNGrams ? new double[n * n * n] : null;
+        double total = 0;
+        double totalPairs = 0;
+        double totalTriples = 0;
+        int prev2 = -1;
+        int prev = -1;
+
+        char[] buf = new char[CaesarCipher.BLOCK_SIZE];
+        int len;
+        while ((len = reader.read(buf, 0, buf.length)) != -1) {
+            for (int i = 0; i < len; i++) {
+                char c = buf[i];
+                // учитываем только те символы, которые есть в нашем алфавите
+                int idx = alphabet.indexOf(c);
+                if (idx < 0) {
+                    prev2 = -1;
+                    prev = -1;
+                    continue;
+                }
+                counts[idx]++;
+                total++;
+                if (pairs != null && prev >= 0) {
+                    pairs[prev * n + idx]++;
+                    totalPairs++;
+                    if (prev2 >= 0) {
+                        triples[(prev2 * n + prev) * n + idx]++;
+                        totalTriples++;
+                    }
+                }
+                prev2 = prev;
+                prev = idx;
+            }
+        }
+        normalize(counts, total);
+        if (pairs != null) normalize(pairs, totalPairs);
+        if (triples != null) normalize(triples, totalTriples);
+        return new LanguageProfile(alphabet, counts, pairs, triples);
+    }
+
+    public static boolean isProfileFile(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] head = in.readNBytes(4);
+            return head.length == 4
+                    && ((head[0] & 0xFF) << 24 | (head[1] & 0xFF) << 16 | (head[2] & 0xFF) << 8 | (head[3] & 0xFF)) == MAGIC;
+        }
+    }
+
+    public static LanguageProfile read(Path path) throws IOException {
+        long size = Files.size(path);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Файл не является языковым профилем: " + path);
+            }
+            int version = in.readInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Неподдерживаемая версия профиля " + version + ": " + path);
+            }
+            int n = in.readInt();
+            // длина проверяется до выделения массивов: повреждённое число заняло бы гигабайты
+            if (n < 2 || n > MAX_SYMBOLS || 10L * n > size) {
+                throw new IOException("Повреждён профиль: длина алфавита " + n + ": " + path);
+            }
+            char[] symbols = new char[n];
+            for (int i = 0; i < n; i++) {
+                symbols[i] = in.readChar();
+            }
+            Alphabet alphabet;
+            try {
+                alphabet = Alphabet.of("profile", new String(symbols));
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Повреждённый алфавит профиля: " + path, ex);
+            }
+            double[] unigrams = readDoubles(in, n, size, path);
+            double[] bigrams = in.readBoolean() ? readDoubles(in, n * n, size, path) : null;
+            // в версии 1 триграмм не было
+            double[] trigrams = version >= 2 && in.readBoolean() ? readDoubles(in, n * n * n, size, path) : null;
+            return new LanguageProfile(alphabet, unigrams, bigrams, trigrams);
+        }
+    }
+
+    public void write(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            int n = unigrams.length;
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            for (int i = 0; i < n; i++) {
+                out.writeChar(alphabet.charAt(i));
+            }
+            writeDoubles(out, unigrams);
+            out.writeBoolean(bigrams != null);
+            if (bigrams != null) writeDoubles(out, bigrams);
+            out.writeBoolean(trigrams != null);
+            if (trigrams != null) writeDoubles(out, trigrams);
+        }
+    }
+
+    private static void normalize(double[] counts, double total) {
+        // Избегаем деления на ноль
+        if (total < 1) total = 1;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] /= total;
+        }
+    }
+
+    private static double[] readDoubles(DataInputStream in, int count, long size, Path path) throws IOException {
+        if (8L * count > size) {
+            throw new IOException("Повреждён профиль: " + count + " частот не помещаются в файл: " + path);
+        }
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        for (double v : values) {
+            out.writeDouble(v);
+        }
+    }
+}
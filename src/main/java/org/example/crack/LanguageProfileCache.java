@@ -0,0 +1,67 @@
+package org.example.crack;
+
+import org.example.cipher.Alphabet;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU-кэш языковых профилей. Ключ — абсолютный путь, время изменения и размер файла,
+ * так что изменённый образец пересобирается автоматически. Принимает как сырой образец,
+ * так и скомпилированный профиль; профиль должен быть собран для алфавита кэша.
+ */
+public class LanguageProfileCache {
+
+    public static final int DEFAULT_CAPACITY = 8;
+
+    private final Alphabet alphabet;
+    private final Map<Key, LanguageProfile> entries;
+
+    public LanguageProfileCache(Alphabet alphabet) {
+        this(alphabet, DEFAULT_CAPACITY);
+    }
+
+    public LanguageProfileCache(Alphabet alphabet, int capacity) {
+        this.alphabet = alphabet;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, LanguageProfile> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public LanguageProfile get(Path path) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        Key key = new Key(path.toAbsolutePath().normalize(), attrs.lastModifiedTime().toMillis(), attrs.size());
+        synchronized (entries) {
+            LanguageProfile cached = entries.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // Загружаем вне блокировки: образцы бывают по сотням мегабайт
+        LanguageProfile profile = LanguageProfile.isProfileFile(path)
+                ? LanguageProfile.read(path)
+                : LanguageProfile.fromSample(path, alphabet, true);
+        if (!profile.alphabet().equals(alphabet)) {
+            throw new IOException("Профиль собран для другого алфавита (" + profile.alphabet().length() + " символов): " + path);
+        }
+        synchronized (entries) {
+            entries.put(key, profile);
+        }
+        return profile;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private record Key(Path path, long modified, long size) { }
+}
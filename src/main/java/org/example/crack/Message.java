@@ -0,0 +1,4 @@
+package org.example.crack;
+
+// Перехваченное сообщение: идентификатор источника и шифртекст
+public record Message(String id, String ciphertext) { }
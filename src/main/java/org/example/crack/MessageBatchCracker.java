@@ -0,0 +1,176 @@
+package org.example.crack;
+
+import org.example.cipher.Alphabet;
+import org.example.cipher.CaesarCipher;
+import org.example.metrics.Counter;
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.Metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Взлом потока коротких сообщений: у каждого свой ключ. Сообщения группами раздаются пулу потоков,
+ * все ключи оцениваются по общей неизменяемой {@link NGramModel}. Буферы (индексы, открытый текст,
+ * оценки ключей) живут в потоке и растут по мере надобности, так что на сообщение выделяется
+ * только строка результата. Результаты приходят в sink из рабочих потоков в порядке готовности.
+ */
+public class MessageBatchCracker {
+
+    public static final int DEFAULT_GROUP_SIZE = 256;
+
+    @FunctionalInterface
+    public interface MessageSink {
+        // Вызывается одновременно из нескольких потоков
+        void accept(CrackedMessage result) throws IOException;
+    }
+
+    private static final Counter MESSAGES = Metrics.counter("crack.messages");
+    private static final Counter CHARS = Metrics.counter(Metrics.CRACK_CHARS);
+    private static final Counter OUTSIDE = Metrics.counter(Metrics.CRACK_CHARS_OUTSIDE);
+    private static final LatencyHistogram GROUP_TIME = Metrics.histogram("crack.messages.group");
+
+    private final NGramModel model;
+    private final Alphabet alphabet;
+    private final CaesarCipher cipher;
+    private final int threads;
+    private final int groupSize;
+    private final ThreadLocal<Workspace> workspaces;
+
+    public MessageBatchCracker(NGramModel model) {
+        this(model, Runtime.getRuntime().availableProcessors(), DEFAULT_GROUP_SIZE);
+    }
+
+    public MessageBatchCracker(NGramModel model, int threads, int groupSize) {
+        if (threads <= 0 || groupSize <= 0) {
+            throw new IllegalArgumentException("Число потоков и размер группы должны быть положительными");
+        }
+        this.model = model;
+        this.alphabet = model.alphabet();
+        this.cipher = new CaesarCipher(alphabet);
+        this.threads = threads;
+        this.groupSize = groupSize;
+        this.workspaces = ThreadLocal.withInitial(() -> new Workspace(alphabet.length()));
+        // таблицы расшифровки строим заранее, чтобы потоки не ждали на блокировке
+        for (int key = 0; key < alphabet.length(); key++) {
+            cipher.warm(key, true);
+        }
+    }
+
+    // Возвращает число взломанных сообщений. Первая ошибка sink или рабочего потока останавливает
+    // приём новых сообщений и пробрасывается вызывающему после завершения пула
+    public long crackAll(Iterator<Message> messages, MessageSink sink) throws IOException {
+        AtomicLong cracked = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        // в полёте не больше двух групп на поток: чтение входа не опережает обработку
+        Semaphore inFlight = new Semaphore(2 * threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            while (messages.hasNext() && failure.get() == null) {
+                List<Message> group = new ArrayList<>(groupSize);
+                while (group.size() < groupSize && messages.hasNext()) {
+                    group.add(messages.next());
+                }
+                inFlight.acquireUninterruptibly();
+                pool.execute(() -> {
+                    try {
+                        crackGroup(group, sink);
+                        cracked.addAndGet(group.size());
+                    } catch (IOException | RuntimeException ex) {
+                        failure.compareAndSet(null, ex);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Взлом сообщений прерван", e);
+            }
+        }
+        Throwable ex = failure.get();
+        if (ex instanceof IOException) {
+            throw (IOException) ex;
+        }
+        if (ex != null) {
+            throw (RuntimeException) ex;
+        }
+        return cracked.get();
+    }
+
+    // Взлом одного сообщения в текущем потоке; для сообщений по одному без пула
+    public CrackedMessage crack(Message message) {
+        return crack(message, workspaces.get());
+    }
+
+    private void crackGroup(List<Message> group, MessageSink sink) throws IOException {
+        long t0 = System.nanoTime();
+        Workspace ws = workspaces.get();
+        long chars = 0;
+        long outside = 0;
+        for (Message m : group) {
+            CrackedMessage result = crack(m, ws);
+            chars += m.ciphertext().length();
+            outside += ws.outside;
+            sink.accept(result);
+        }
+        MESSAGES.add(group.size());
+        CHARS.add(chars);
+        OUTSIDE.add(outside);
+        GROUP_TIME.recordSince(t0);
+    }
+
+    private CrackedMessage crack(Message message, Workspace ws) {
+        String text = message.ciphertext();
+        int len = text.length();
+        ws.ensureCapacity(len);
+        text.getChars(0, len, ws.src, 0);
+
+        int outside = 0;
+        for (int i = 0; i < len; i++) {
+            int idx = alphabet.indexOf(ws.src[i]);
+            ws.seq[i] = idx;
+            if (idx < 0) outside++;
+        }
+        ws.outside = outside;
+
+        int key = model.scoreSequence(ws.seq, len, ws.scores);
+        cipher.transform(ws.src, 0, len, ws.plain, 0, key, true);
+        return new CrackedMessage(message.id(), key, ws.scores[key], NGramModel.confidence(ws.scores, key),
+                new String(ws.plain, 0, len));
+    }
+
+    // Рабочие буферы одного потока
+    private static final class Workspace {
+        final double[] scores;
+        char[] src = new char[0];
+        char[] plain = new char[0];
+        int[] seq = new int[0];
+        int outside;
+
+        Workspace(int n) {
+            this.scores = new double[n];
+        }
+
+        void ensureCapacity(int len) {
+            if (src.length < len) {
+                int size = Math.max(len, 2 * src.length);
+                src = new char[size];
+                plain = new char[size];
+                seq = new int[size];
+            }
+        }
+    }
+}
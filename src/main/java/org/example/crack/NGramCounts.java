@@ -0,0 +1,77 @@
+package org.example.crack;
+
+import org.example.cipher.Alphabet;
+import org.example.cipher.CaesarCipher;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Счётчики униграмм, биграмм и триграмм шифртекста в пространстве индексов алфавита.
+ * Серия n-грамм прерывается на символах вне алфавита. Объект переиспользуется через {@link #reset()}.
+ */
+public final class NGramCounts {
+
+    final Alphabet alphabet;
+    final int n;
+    final long[] unigrams;
+    final long[] bigrams;
+    final long[] trigrams;
+    long totalUnigrams;
+    long totalBigrams;
+    long totalTrigrams;
+
+    private int prev2 = -1;
+    private int prev = -1;
+
+    public NGramCounts(Alphabet alphabet) {
+        this.alphabet = alphabet;
+        this.n = alphabet.length();
+        this.unigrams = new long[n];
+        this.bigrams = new long[n * n];
+        this.trigrams = new long[n * n * n];
+    }
+
+    public void reset() {
+        Arrays.fill(unigrams, 0);
+        Arrays.fill(bigrams, 0);
+        Arrays.fill(trigrams, 0);
+        totalUnigrams = totalBigrams = totalTrigrams = 0;
+        prev2 = prev = -1;
+    }
+
+    public void feed(char[] buf, int off, int len) {
+        for (int i = off, end = off + len; i < end; i++) {
+            int idx = alphabet.indexOf(buf[i]);
+            if (idx < 0) {
+                prev2 = prev = -1;
+                continue;
+            }
+            unigrams[idx]++;
+            totalUnigrams++;
+            if (prev >= 0) {
+                bigrams[prev * n + idx]++;
+                totalBigrams++;
+                if (prev2 >= 0) {
+                    trigrams[(prev2 * n + prev) * n + idx]++;
+                    totalTrigrams++;
+                }
+            }
+            prev2 = prev;
+            prev = idx;
+        }
+    }
+
+    public void feed(Reader reader) throws IOException {
+        char[] buf = new char[CaesarCipher.BLOCK_SIZE];
+        int len;
+        while ((len = reader.read(buf, 0, buf.length)) != -1) {
+            feed(buf, 0, len);
+        }
+    }
+
+    public long totalSymbols() {
+        return totalUnigrams;
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.crack;
+
+import org.example.cipher.Alphabet;
+import org.example.cipher.CaesarCipher;
+import org.example.io.FileManager;
+import org.example.validation.ValidatedInput;
+import org.example.validation.ValidatedOutput;
+import org.example.validation.Validator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Взлом по биграммам/триграммам: один проход по шифртексту собирает счётчики n-грамм,
+ * после чего все ключи оцениваются по логарифмам вероятностей профиля.
+ * Работает на коротких текстах, где униграммный χ² ошибается.
+ */
+public class NGramCracker {
+
+    private final CaesarCipher cipher;
+    private final LanguageProfileCache profiles;
+
+    public NGramCracker() {
+        this(Alphabet.RUSSIAN);
+    }
+
+    public NGramCracker(Alphabet alphabet) {
+        this.cipher = new CaesarCipher(alphabet);
+        this.profiles = new LanguageProfileCache(alphabet);
+    }
+
+    public List<KeyCandidate> crackByNGrams(Path input, Path sample, Path output, Validator validator) throws IOException {
+        validator.ensureFileReadable(sample);
+        return crackByNGrams(input, profiles.get(sample), output, validator);
+    }
+
+    public List<KeyCandidate> crackByNGrams(Path input, LanguageProfile profile, Path output, Validator validator) throws IOException {
+        return crackByNGrams(validator.ensureFileReadable(input), profile, validator.ensureParentWritable(output));
+    }
+
+    public List<KeyCandidate> crackByNGrams(ValidatedInput input, ValidatedInput sample, ValidatedOutput output) throws IOException {
+        return crackByNGrams(input, profiles.get(sample.path()), output);
+    }
+
+    // Пути уже проверены валидатором, повторно файловая система не опрашивается
+    public List<KeyCandidate> crackByNGrams(ValidatedInput validInput, LanguageProfile profile, ValidatedOutput validOutput) throws IOException {
+        Path input = validInput.path();
+        Path output = validOutput.path();
+
+        if (!profile.alphabet().equals(cipher.alphabet())) {
+            throw new IOException("Профиль собран для другого алфавита: " + profile.alphabet());
+        }
+
+        Charset charset = FileManager.charsetFor(input);
+        List<KeyCandidate> ranked;
+        try (Reader r = FileManager.newReader(input, charset)) {
+            ranked = rankKeys(r, new NGramModel(profile));
+        }
+
+        try (Reader r = FileManager.newReader(input, charset);
+             Writer w = FileManager.newWriter(output, charset)) {
+            cipher.transformStream(r, w, ranked.get(0).key(), /*decrypt=*/ true);
+        }
+        return ranked;
+    }
+
+    public List<KeyCandidate> rankKeys(Reader ciphertext, NGramModel model) throws IOException {
+        NGramCounts counts = new NGramCounts(model.alphabet());
+        counts.feed(ciphertext);
+        return model.rank(counts);
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.crack;
+
+import org.example.cipher.Alphabet;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Неизменяемая n-граммная модель языка: логарифмы вероятностей униграмм, биграмм и триграмм
+ * в плоских массивах по индексам алфавита. Оценивает сразу все ключи по счётчикам шифртекста:
+ * используется старший порядок, который есть и в профиле, и в шифртексте.
+ */
+public final class NGramModel {
+
+    private final Alphabet alphabet;
+    private final int n;
+    private final double[] logUnigrams;
+    private final double[] logBigrams;
+    private final double[] logTrigrams;
+    // plainByKey[key][i] — индекс открытого символа для символа шифртекста i
+    private final int[][] plainByKey;
+
+    public NGramModel(LanguageProfile profile) {
+        this.alphabet = profile.alphabet();
+        this.n = alphabet.length();
+        this.logUnigrams = toLog(profile.unigramsView());
+        this.logBigrams = profile.hasBigrams() ? toLog(profile.bigramsView()) : null;
+        this.logTrigrams = profile.hasTrigrams() ? toLog(profile.trigramsView()) : null;
+        this.plainByKey = new int[n][n];
+        for (int key = 0; key < n; key++) {
+            for (int i = 0; i < n; i++) {
+                plainByKey[key][i] = (i - key + n) % n;
+            }
+        }
+    }
+
+    public Alphabet alphabet() {
+        return alphabet;
+    }
+
+    public List<KeyCandidate> rank(NGramCounts counts) {
+        if (!counts.alphabet.equals(alphabet)) {
+            throw new IllegalArgumentException("Счётчики собраны для другого алфавита: " + counts.alphabet);
+        }
+        double[] scores = new double[n];
+        for (int key = 0; key < n; key++) {
+            scores[key] = score(counts, key);
+        }
+
+        List<KeyCandidate> ranked = new ArrayList<>(n);
+        for (int key = 0; key < n; key++) {
+            ranked.add(new KeyCandidate(key, scores[key], confidence(scores, key)));
+        }
+        ranked.sort(Comparator.comparingDouble(KeyCandidate::score).reversed()
+                .thenComparingInt(KeyCandidate::key));
+        return ranked;
+    }
+
+    // Логарифм правдоподобия текста, расшифрованного ключом key
+    public double score(NGramCounts counts, int key) {
+        int[] plain = plainByKey[key];
+
+        double score = 0;
+        if (logTrigrams != null && counts.totalTrigrams > 0) {
+            long[] tri = counts.trigrams;
+            for (int a = 0; a < n; a++) {
+                for (int b = 0; b < n; b++) {
+                    int base = (a * n + b) * n;
+                    int plainBase = (plain[a] * n + plain[b]) * n;
+                    for (int c = 0; c < n; c++) {
+                        long cnt = tri[base + c];
+                        if (cnt != 0) score += cnt * logTrigrams[plainBase + plain[c]];
+                    }
+                }
+            }
+        } else if (logBigrams != null && counts.totalBigrams > 0) {
+            long[] bi = counts.bigrams;
+            for (int a = 0; a < n; a++) {
+                for (int b = 0; b < n; b++) {
+                    long cnt = bi[a * n + b];
+                    if (cnt != 0) score += cnt * logBigrams[plain[a] * n + plain[b]];
+                }
+            }
+        } else {
+            long[] uni = counts.unigrams;
+            for (int a = 0; a < n; a++) {
+                if (uni[a] != 0) score += uni[a] * logUnigrams[plain[a]];
+            }
+        }
+        return score;
+    }
+
+    // Оценки всех ключей по последовательности индексов алфавита (-1 — символ вне алфавита)
+    // без счётчиков: для коротких сообщений это N·len операций вместо N·n³. Результат тот же,
+    // что у score(counts, key). scores заполняется, возвращается лучший ключ.
+    int scoreSequence(int[] seq, int len, double[] scores) {
+        int order = 1;
+        for (int i = 1; i < len && order < 3; i++) {
+            if (seq[i] < 0 || seq[i - 1] < 0) continue;
+            if (logBigrams != null) order = Math.max(order, 2);
+            if (logTrigrams != null && i >= 2 && seq[i - 2] >= 0) order = 3;
+        }
+
+        int best = 0;
+        for (int key = 0; key < n; key++) {
+            int[] plain = plainByKey[key];
+            double score = 0;
+            int run = 0;
+            for (int i = 0; i < len; i++) {
+                int idx = seq[i];
+                if (idx < 0) {
+                    run = 0;
+                    continue;
+                }
+                run++;
+                if (order == 3) {
+                    if (run >= 3) score += logTrigrams[(plain[seq[i - 2]] * n + plain[seq[i - 1]]) * n + plain[idx]];
+                } else if (order == 2) {
+                    if (run >= 2) score += logBigrams[plain[seq[i - 1]] * n + plain[idx]];
+                } else {
+                    score += logUnigrams[plain[idx]];
+                }
+            }
+            scores[key] = score;
+            if (score > scores[best]) best = key;
+        }
+        return best;
+    }
+
+    // Апостериорная вероятность ключа: softmax по логарифмам правдоподобия
+    static double confidence(double[] scores, int key) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double s : scores) max = Math.max(max, s);
+        double sum = 0;
+        for (double s : scores) sum += Math.exp(s - max);
+        return Math.exp(scores[key] - max) / sum;
+    }
+
+    // Невстреченным n-граммам даём вероятность на порядок ниже минимальной встреченной
+    private static double[] toLog(double[] probs) {
+        double min = 1;
+        for (double p : probs) {
+            if (p > 0 && p < min) min = p;
+        }
+        double floor = Math.log(min / 10);
+        double[] logs = new double[probs.length];
+        for (int i = 0; i < probs.length; i++) {
+            logs[i] = probs[i] > 0 ? Math.log(probs[i]) : floor;
+        }
+        return logs;
+    }
+}
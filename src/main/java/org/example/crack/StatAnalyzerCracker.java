@@ -1,86 +1,248 @@
 package org.example.crack;
 
+import org.example.cipher.Alphabet;
+import org.example.cipher.ByteCaesarCipher;
 import org.example.cipher.CaesarCipher;
 import org.example.io.FileManager;
+import org.example.metrics.Counter;
+import org.example.metrics.CrackEvent;
+import org.example.metrics.KeyScoreEvent;
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.Metrics;
+import org.example.validation.ValidatedInput;
+import org.example.validation.ValidatedOutput;
 import org.example.validation.Validator;
 
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 
 
 public class StatAnalyzerCracker {
+
+    public static final double DEFAULT_MARGIN = 0.75;
+    public static final long DEFAULT_MIN_SYMBOLS = 16 * 1024;
+    public static final long DEFAULT_CHECK_INTERVAL = 64 * 1024;
+
+    private static final Counter CHARS = Metrics.counter(Metrics.CRACK_CHARS);
+    private static final Counter OUTSIDE = Metrics.counter(Metrics.CRACK_CHARS_OUTSIDE);
+    private static final Counter EARLY_EXITS = Metrics.counter("stat.early.exits");
+    private static final LatencyHistogram READ_TIME = Metrics.histogram("stat.read");
+    private static final LatencyHistogram SCORE_TIME = Metrics.histogram("stat.score");
+    private static final LatencyHistogram WRITE_TIME = Metrics.histogram("stat.write");
     
-    private final CaesarCipher cipher = new CaesarCipher();
+    private final Alphabet alphabet;
+    private final CaesarCipher cipher;
+    private final LanguageProfileCache profiles;
+    private final double confidenceMargin;
+    private final long minSymbols;
+    private final long checkInterval;
+
+    public StatAnalyzerCracker() {
+        this(Alphabet.RUSSIAN);
+    }
 
-    public void crackByStatAnalysis(Path input, Path sample, Path output, Validator validator) throws IOException {
+    public StatAnalyzerCracker(Alphabet alphabet) {
+        this(alphabet, DEFAULT_MARGIN, DEFAULT_MIN_SYMBOLS, DEFAULT_CHECK_INTERVAL);
+    }
 
-        validator.ensureFileReadable(input);
-        validator.ensureFileReadable(sample);
-        validator.ensureParentWritable(output);
+    // confidenceMargin > 1 отключает досрочную остановку: файл всегда читается целиком
+    public StatAnalyzerCracker(Alphabet alphabet, double confidenceMargin, long minSymbols, long checkInterval) {
+        if (checkInterval <= 0) {
+            throw new IllegalArgumentException("Интервал проверки должен быть положительным: " + checkInterval);
+        }
+        this.alphabet = alphabet;
+        this.cipher = new CaesarCipher(alphabet);
+        this.profiles = new LanguageProfileCache(alphabet);
+        this.confidenceMargin = confidenceMargin;
+        this.minSymbols = minSymbols;
+        this.checkInterval = checkInterval;
+    }
 
- 
-        double[] distSample    = buildNormalizedFrequencies(sample);
-        double[] distEncrypted = buildNormalizedFrequencies(input);
+    public StatCrackResult crackByStatAnalysis(Path input, Path sample, Path output, Validator validator) throws IOException {
 
+        validator.ensureFileReadable(sample);
+        return crackByStatAnalysis(input, profiles.get(sample), output, validator);
+    }
 
-        int alphabetLength = org.example.cipher.Alphabet.length();
-        double bestChi2 = Double.MAX_VALUE;  
-        int bestKey = 0;                     
+    public StatCrackResult crackByStatAnalysis(Path input, LanguageProfile profile, Path output, Validator validator) throws IOException {
+        return crackByStatAnalysis(validator.ensureFileReadable(input), profile, validator.ensureParentWritable(output));
+    }
 
-        for (int key = 0; key < alphabetLength; key++) {
-            double chi2 = computeChiSquared(distEncrypted, distSample, key);
-            if (chi2 < bestChi2) {
-                bestChi2 = chi2;
-                bestKey = key;
-            }
+    public StatCrackResult crackByStatAnalysis(ValidatedInput input, ValidatedInput sample, ValidatedOutput output) throws IOException {
+        return crackByStatAnalysis(input, profiles.get(sample.path()), output);
+    }
+
+    // Пути уже проверены валидатором, повторно файловая система не опрашивается
+    public StatCrackResult crackByStatAnalysis(ValidatedInput validInput, LanguageProfile profile, ValidatedOutput validOutput) throws IOException {
+        Path input = validInput.path();
+        Path output = validOutput.path();
+        if (!profile.alphabet().equals(alphabet)) {
+            throw new IOException("Профиль собран для другого алфавита: " + profile.alphabet());
         }
 
+        CrackEvent event = new CrackEvent();
+        event.begin();
+        Charset charset = FileManager.charsetFor(input);
+        StatCrackResult result;
+        try (Reader r = FileManager.newReader(input, charset)) {
+            result = detectKey(r, charset, profile.unigramsView(), event);
+        }
 
-        try (Reader r = FileManager.newReader(input);
-             Writer w = FileManager.newWriter(output)) {
-            cipher.transformStream(r, w, bestKey, /*decrypt=*/ true);
+        long t0 = System.nanoTime();
+        try (Reader r = FileManager.newReader(input, charset);
+             Writer w = FileManager.newWriter(output, charset)) {
+            cipher.transformStream(r, w, result.key(), /*decrypt=*/ true);
+        }
+        long writeNanos = System.nanoTime() - t0;
+        WRITE_TIME.record(writeNanos);
+
+        if (event.shouldCommit()) {
+            event.method = "stat";
+            event.key = result.key();
+            event.score = result.chiSquared();
+            event.writeNanos = writeNanos;
+            event.commit();
         }
+        return result;
+    }
+
+    public void compileProfile(Path sample, Path profile, Validator validator) throws IOException {
+        validator.ensureFileReadable(sample);
+        validator.ensureParentWritable(profile);
 
-   
-        System.out.println("Найден ключ: " + bestKey + " (χ²=" + String.format("%.4f", bestChi2) + ")");
-        System.out.println("Готово! Файл расшифрован в: " + output);
+        LanguageProfile.fromSample(sample, alphabet, true).write(profile);
     }
 
-    private double[] buildNormalizedFrequencies(Path path) throws IOException {
-        int n = org.example.cipher.Alphabet.length();
-        double[] counts = new double[n];
-        double total = 0;
+    // Гистограмма шифртекста пополняется блоками; каждые checkInterval символов χ² пересчитывается
+    // для всех ключей, и чтение прекращается, как только отрыв лучшего ключа достигает порога.
+    // Прочитанные байты считаются в кодировке по умолчанию
+    public StatCrackResult detectKey(Reader reader, double[] distSample) throws IOException {
+        return detectKey(reader, FileManager.charset(), distSample);
+    }
+
+    // charset — кодировка, из которой декодирован reader: по ней прочитанные символы пересчитываются в байты
+    public StatCrackResult detectKey(Reader reader, Charset charset, double[] distSample) throws IOException {
+        return detectKey(reader, charset, distSample, new CrackEvent());
+    }
 
-        // Читаем файл посимвольно
-        try (Reader r = FileManager.newReader(path)) {
-            int ch;
-            while ((ch = r.read()) != -1) {
-                char c = (char) ch;
+    private StatCrackResult detectKey(Reader reader, Charset charset, double[] distSample, CrackEvent event)
+            throws IOException {
+        int n = alphabet.length();
+        if (distSample.length != n) {
+            throw new IllegalArgumentException("Частоты образца не соответствуют алфавиту: " + distSample.length + " != " + n);
+        }
+        long[] counts = new long[n];
+        double[] dist = new double[n];
+        long total = 0;
+        long consumed = 0;
+        long bytes = 0;
+        boolean singleByte = ByteCaesarCipher.isSingleByte(charset);
+        long nextCheck = checkInterval;
+
+        char[] buf = new char[CaesarCipher.BLOCK_SIZE];
+        long readNanos = 0;
+        long scoreNanos = 0;
+        StatCrackResult result = null;
+        int len;
+        long t0 = System.nanoTime();
+        while ((len = reader.read(buf, 0, buf.length)) != -1) {
+            long t1 = System.nanoTime();
+            readNanos += t1 - t0;
+            for (int i = 0; i < len; i++) {
                 // учитываем только те символы, которые есть в нашем алфавите
-                if (org.example.cipher.Alphabet.contains(c)) {
-                    int idx = org.example.cipher.Alphabet.indexOf(c);
+                int idx = alphabet.indexOf(buf[i]);
+                if (idx >= 0) {
                     counts[idx]++;
                     total++;
                 }
             }
+            consumed += len;
+            bytes += singleByte ? len : encodedLength(buf, len, charset);
+            if (consumed >= nextCheck) {
+                nextCheck = consumed + checkInterval;
+                if (total >= minSymbols) {
+                    StatCrackResult candidate = evaluate(counts, total, dist, distSample, bytes, true);
+                    if (candidate.margin() >= confidenceMargin) {
+                        result = candidate;
+                    }
+                }
+            }
+            t0 = System.nanoTime();
+            scoreNanos += t0 - t1;
+            if (result != null) {
+                EARLY_EXITS.increment();
+                break;
+            }
+        }
+        if (result == null) {
+            long t1 = System.nanoTime();
+            result = evaluate(counts, total, dist, distSample, bytes, false);
+            scoreNanos += System.nanoTime() - t1;
         }
+
+        // символы вне алфавита — всё прочитанное, что не попало в гистограмму
+        CHARS.add(consumed);
+        OUTSIDE.add(consumed - total);
+        READ_TIME.record(readNanos);
+        SCORE_TIME.record(scoreNanos);
+        event.chars = consumed;
+        event.outside = consumed - total;
+        event.readNanos = readNanos;
+        event.scoreNanos = scoreNanos;
+        return result;
+    }
+
+    private StatCrackResult evaluate(long[] counts, long total, double[] dist, double[] distSample,
+                                     long bytes, boolean early) {
+        int n = counts.length;
         // Избегаем деления на ноль
-        if (total < 1) total = 1;
-        // Нормализуем: каждую частоту делим на общее число символов
+        double norm = Math.max(total, 1);
         for (int i = 0; i < n; i++) {
-            counts[i] /= total;
+            dist[i] = counts[i] / norm;
+        }
+
+        double bestChi2 = Double.MAX_VALUE;
+        double secondChi2 = Double.MAX_VALUE;
+        int bestKey = 0;
+        for (int key = 0; key < n; key++) {
+            double chi2 = computeChiSquared(dist, distSample, key);
+            KeyScoreEvent.emit("stat", key, chi2);
+            if (chi2 < bestChi2) {
+                secondChi2 = bestChi2;
+                bestChi2 = chi2;
+                bestKey = key;
+            } else if (chi2 < secondChi2) {
+                secondChi2 = chi2;
+            }
+        }
+        double margin = secondChi2 > 0 && secondChi2 < Double.MAX_VALUE ? (secondChi2 - bestChi2) / secondChi2 : 0;
+        return new StatCrackResult(bestKey, bestChi2, margin, bytes, early);
+    }
+
+    // Длина символов в многобайтовой кодировке; для UTF-8 без кодирования, суррогатная пара — 4 байта
+    private static long encodedLength(char[] buf, int len, Charset charset) {
+        if (!charset.equals(StandardCharsets.UTF_8)) {
+            return charset.encode(CharBuffer.wrap(buf, 0, len)).remaining();
+        }
+        long bytes = 0;
+        for (int i = 0; i < len; i++) {
+            char ch = buf[i];
+            bytes += ch < 0x80 ? 1 : ch < 0x800 || Character.isSurrogate(ch) ? 2 : 3;
         }
-        return counts;
+        return bytes;
     }
 
-    private double computeChiSquared(double[] distEncrypted, double[] distSample, int key) {
+    static double computeChiSquared(double[] distEncrypted, double[] distSample, int key) {
         int n = distSample.length;
         double chi2 = 0.0;
         for (int i = 0; i < n; i++) {
             double Ei = distEncrypted[i];
-            double Si = distSample[(i + key) % n];
+            double Si = distSample[(i - key + n) % n];
             if (Si > 0) {
                 double diff = Ei - Si;
                 chi2 += (diff * diff) / Si;
@@ -0,0 +1,8 @@
+package org.example.crack;
+
+/**
+ * Итог статистического подбора ключа. margin — относительный отрыв лучшего ключа от второго
+ * по χ² ((χ²₂ − χ²₁) / χ²₂, от 0 до 1); bytesConsumed — сколько байт шифртекста прочитано до решения;
+ * earlyExit — чтение остановлено досрочно.
+ */
+public record StatCrackResult(int key, double chiSquared, double margin, long bytesConsumed, boolean earlyExit) { }
@@ -0,0 +1,90 @@
+package org.example.crack;
+
+import org.example.cipher.Alphabet;
+
+/**
+ * Слоговая оценка: слово — максимальная серия кириллических букв, серия из v гласных
+ * даёт ceil(v/2) слогов, слово без гласных штрафуется на {@link #PENALTY}.
+ * Символы классифицируются по таблице, без регулярных выражений и подстрок.
+ */
+public final class SyllableScorer implements TextScorer {
+
+    public static final double PENALTY = 0.5;
+
+    private static final byte OTHER = 0;
+    private static final byte CONSONANT = 1;
+    private static final byte VOWEL = 2;
+
+    private static final byte[] CLASS = new byte[Character.MAX_VALUE + 1];
+
+    static {
+        for (char c = 'А'; c <= 'я'; c++) CLASS[c] = CONSONANT;
+        CLASS['ё'] = CONSONANT;
+        CLASS['Ё'] = CONSONANT;
+        for (char c : "аеёиоуыэюяАЕЁИОУЫЭЮЯ".toCharArray()) CLASS[c] = VOWEL;
+    }
+
+    private long syllables;
+    private long bad;
+    private boolean inWord;
+    private int wordSyllables;
+    private int vowelRun;
+
+    public static boolean isVowel(char c) {
+        return CLASS[c] == VOWEL;
+    }
+
+    public static boolean isLetter(char c) {
+        return CLASS[c] != OTHER;
+    }
+
+    // Оценка различает ключи, только если в алфавите есть кириллические гласные и согласные
+    public static boolean supports(Alphabet alphabet) {
+        boolean vowel = false;
+        boolean consonant = false;
+        for (int i = 0; i < alphabet.length(); i++) {
+            byte cls = CLASS[alphabet.charAt(i)];
+            vowel |= cls == VOWEL;
+            consonant |= cls == CONSONANT;
+        }
+        return vowel && consonant;
+    }
+
+    @Override
+    public void feed(char[] buf, int off, int len) {
+        for (int i = off, end = off + len; i < end; i++) {
+            byte cls = CLASS[buf[i]];
+            if (cls == VOWEL) {
+                inWord = true;
+                vowelRun++;
+            } else if (cls == CONSONANT) {
+                inWord = true;
+                wordSyllables += (vowelRun + 1) >> 1;
+                vowelRun = 0;
+            } else if (inWord) {
+                endWord();
+            }
+        }
+    }
+
+    @Override
+    public double score() {
+        endWord();
+        return syllables - bad * PENALTY;
+    }
+
+    @Override
+    public String label() {
+        return "Оценка слогов";
+    }
+
+    private void endWord() {
+        if (!inWord) return;
+        wordSyllables += (vowelRun + 1) >> 1;
+        syllables += wordSyllables;
+        if (wordSyllables == 0) bad++;
+        inWord = false;
+        wordSyllables = 0;
+        vowelRun = 0;
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.crack;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Потоковая оценка правдоподобия открытого текста. Символы подаются блоками,
+ * {@link #score()} завершает поток и возвращает итог: чем больше, тем правдоподобнее.
+ */
+public interface TextScorer {
+
+    void feed(char[] buf, int off, int len);
+
+    double score();
+
+    default String label() {
+        return "Оценка";
+    }
+
+    default void feed(Reader reader) throws IOException {
+        char[] buf = new char[8192];
+        int n;
+        while ((n = reader.read(buf, 0, buf.length)) != -1) {
+            feed(buf, 0, n);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package org.example.crack;
+
+import org.example.cipher.Alphabet;
+import org.example.cipher.CaesarCipher;
+import org.example.io.FileManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Компактный словарь: множество 64-битных отпечатков слов в открытой адресации с линейным пробированием.
+ * Таблица лежит вне кучи — в прямом буфере или отображённом в память файле, поэтому большой словарь
+ * не нагружает сборщик мусора, а готовый файл открывается без разбора.
+ * <p>
+ * Слово — максимальная серия букв алфавита; буквы приводятся к строчным, хеш считается по индексам
+ * в алфавите, а не по символам. Так взломщик получает хеш слова, не собирая строку:
+ * {@link #step} на каждую букву, {@link #finish} в конце слова. Символы вне алфавита разделяют слова
+ * и в словаре, и в тексте, поэтому слова с ними разбиваются одинаково.
+ * <p>
+ * Формат файла: "CSWI", версия, символы алфавита, число слов, ёмкость (степень двойки),
+ * выравнивание до 8 байт и ёмкость·8 байт слотов; 0 — пустой слот.
+ */
+public final class WordIndex {
+
+    public static final long SEED = 0xCBF29CE484222325L;
+
+    private static final int MAGIC = 0x43535749; // "CSWI"
+    private static final int VERSION = 1;
+    private static final long PRIME = 0x100000001B3L;
+
+    private final Alphabet alphabet;
+    private final int count;
+    private final LongBuffer slots;
+    private final int mask;
+
+    private WordIndex(Alphabet alphabet, int count, LongBuffer slots) {
+        this.alphabet = alphabet;
+        this.count = count;
+        this.slots = slots;
+        this.mask = slots.capacity() - 1;
+    }
+
+    public Alphabet alphabet() {
+        return alphabet;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Очередная буква слова: idx — индекс строчной буквы в алфавите
+    public static long step(long state, int idx) {
+        return (state ^ (idx + 1)) * PRIME;
+    }
+
+    // Итоговый отпечаток слова длины len; никогда не равен 0
+    public static long finish(long state, int len) {
+        long h = state ^ len;
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h != 0 ? h : 1;
+    }
+
+    // Без выделения памяти: только чтение слотов
+    public boolean contains(long fingerprint) {
+        int slot = (int) fingerprint & mask;
+        while (true) {
+            long v = slots.get(slot);
+            if (v == fingerprint) return true;
+            if (v == 0) return false;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Индекс строчной формы для каждой буквы алфавита, -1 для знаков препинания и пробела
+    public static int[] letterIndex(Alphabet alphabet) {
+        int[] fold = new int[alphabet.length()];
+        for (int i = 0; i < fold.length; i++) {
+            char c = alphabet.charAt(i);
+            int lower = alphabet.indexOf(Character.toLowerCase(c));
+            fold[i] = !Character.isLetter(c) ? -1 : lower >= 0 ? lower : i;
+        }
+        return fold;
+    }
+
+    public static boolean isIndexFile(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] head = in.readNBytes(4);
+            return head.length == 4 && ByteBuffer.wrap(head).getInt() == MAGIC;
+        }
+    }
+
+    // Готовый индекс отображается в память, список слов (по слову или фразе в строке) собирается вне кучи
+    public static WordIndex load(Path path, Alphabet alphabet) throws IOException {
+        if (isIndexFile(path)) {
+            return open(path);
+        }
+        try (Reader r = FileManager.newReader(path)) {
+            return build(r, alphabet);
+        }
+    }
+
+    public static WordIndex build(Reader words, Alphabet alphabet) throws IOException {
+        int[] fold = letterIndex(alphabet);
+        long[] found = new long[1024];
+        int size = 0;
+        long state = SEED;
+        int len = 0;
+
+        char[] buf = new char[CaesarCipher.BLOCK_SIZE];
+        int n;
+        while ((n = words.read(buf, 0, buf.length)) != -1) {
+            for (int i = 0; i < n; i++) {
+                int idx = alphabet.indexOf(buf[i]);
+                int letter = idx >= 0 ? fold[idx] : -1;
+                if (letter >= 0) {
+                    state = step(state, letter);
+                    len++;
+                    continue;
+                }
+                if (len > 0) {
+                    if (size == found.length) found = Arrays.copyOf(found, size * 2);
+                    found[size++] = finish(state, len);
+                }
+                state = SEED;
+                len = 0;
+            }
+        }
+        if (len > 0) {
+            if (size == found.length) found = Arrays.copyOf(found, size + 1);
+            found[size++] = finish(state, len);
+        }
+
+        Arrays.sort(found, 0, size);
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || found[unique - 1] != found[i]) found[unique++] = found[i];
+        }
+        int capacity = Integer.highestOneBit(Math.max(unique, 8) * 2 - 1) << 1;
+        LongBuffer slots = ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+        for (int i = 0; i < unique; i++) {
+            insert(slots, capacity - 1, found[i]);
+        }
+        return new WordIndex(alphabet, unique, slots);
+    }
+
+    public static WordIndex open(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            try {
+                if (map.getInt() != MAGIC) {
+                    throw new IOException("Файл не является словарным индексом: " + path);
+                }
+                int version = map.getInt();
+                if (version != VERSION) {
+                    throw new IOException("Неподдерживаемая версия индекса " + version + ": " + path);
+                }
+                char[] symbols = new char[map.getInt()];
+                for (int i = 0; i < symbols.length; i++) {
+                    symbols[i] = map.getChar();
+                }
+                int count = map.getInt();
+                int capacity = map.getInt();
+                if (Integer.bitCount(capacity) != 1 || count >= capacity) {
+                    throw new IOException("Повреждённый заголовок индекса: " + path);
+                }
+                map.position(align(map.position()));
+                if (map.remaining() != (long) capacity * Long.BYTES) {
+                    throw new IOException("Размер индекса не совпадает с заголовком: " + path);
+                }
+                return new WordIndex(Alphabet.of("index", new String(symbols)), count, map.slice().asLongBuffer());
+            } catch (RuntimeException ex) {
+                throw new IOException("Повреждённый словарный индекс: " + path, ex);
+            }
+        }
+    }
+
+    public void write(Path path) throws IOException {
+        int n = alphabet.length();
+        ByteBuffer header = ByteBuffer.allocate(align(20 + 2 * n));
+        header.putInt(MAGIC).putInt(VERSION).putInt(n);
+        for (int i = 0; i < n; i++) {
+            header.putChar(alphabet.charAt(i));
+        }
+        header.putInt(count).putInt(slots.capacity());
+        header.clear();
+
+        ByteBuffer body = ByteBuffer.allocate(slots.capacity() * Long.BYTES);
+        body.asLongBuffer().put(slots.duplicate().clear());
+        try (FileChannel out = FileManager.newWriteChannel(path)) {
+            ByteBuffer[] parts = {header, body};
+            while (body.hasRemaining()) {
+                out.write(parts);
+            }
+        }
+    }
+
+    private static void insert(LongBuffer slots, int mask, long fingerprint) {
+        int slot = (int) fingerprint & mask;
+        while (slots.get(slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots.put(slot, fingerprint);
+    }
+
+    private static int align(int position) {
+        return (position + Long.BYTES - 1) & -Long.BYTES;
+    }
+}
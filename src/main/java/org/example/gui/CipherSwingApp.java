@@ -1,18 +1,35 @@
 package org.example.gui;
 
+import org.example.cipher.Alphabet;
 import org.example.cipher.CaesarCipher;
-import org.example.io.FileManager;
+import org.example.crack.BruteForceCracker;
+import org.example.crack.StatAnalyzerCracker;
+import org.example.crack.StatCrackResult;
+import org.example.io.TextFileCipher;
 import org.example.validation.Validator;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 import java.awt.*;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 
 public class CipherSwingApp {
-    private final CaesarCipher cipher = new CaesarCipher();
-    private final Validator validator = new Validator(org.example.cipher.Alphabet.length());
+    // Текст обрабатывается кусками, чтобы не собирать многомегабайтную строку целиком
+    private static final int TEXT_CHUNK = 64 * 1024;
+
+    private final Alphabet alphabet = Alphabet.RUSSIAN;
+    private final CaesarCipher cipher = new CaesarCipher(alphabet);
+    private final TextFileCipher files = new TextFileCipher(cipher);
+    private final Validator validator = new Validator(alphabet);
+    private final BruteForceCracker bruteForce = new BruteForceCracker(alphabet);
+    private final StatAnalyzerCracker statAnalyzer = new StatAnalyzerCracker(alphabet);
 
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> new CipherSwingApp().createAndShow());
@@ -26,6 +43,8 @@ public class CipherSwingApp {
         JTabbedPane tabs = new JTabbedPane();
         tabs.addTab("Файлы", createFilePanel());
         tabs.addTab("Текст", createTextPanel());
+        tabs.addTab("Brute Force", createBrutePanel());
+        tabs.addTab("Stat Crack", createStatPanel());
 
         frame.getContentPane().add(tabs);
         frame.setLocationRelativeTo(null);
@@ -39,33 +58,22 @@ public class CipherSwingApp {
         c.fill = GridBagConstraints.HORIZONTAL;
 
         JTextField inPath = new JTextField();
-        JButton inBtn = new JButton("Выбрать");
-        inBtn.addActionListener(e -> {
-            JFileChooser fc = new JFileChooser();
-            fc.setFileFilter(new FileNameExtensionFilter("Text files", "txt"));
-            if (fc.showOpenDialog(null)==JFileChooser.APPROVE_OPTION)
-                inPath.setText(fc.getSelectedFile().getAbsolutePath());
-        });
+        JButton inBtn = openButton(inPath);
 
         JTextField outPath = new JTextField();
-        JButton outBtn = new JButton("Сохранить в");
-        outBtn.addActionListener(e -> {
-            JFileChooser fc = new JFileChooser();
-            fc.setFileFilter(new FileNameExtensionFilter("Text files", "txt"));
-            if (fc.showSaveDialog(null)==JFileChooser.APPROVE_OPTION)
-                outPath.setText(fc.getSelectedFile().getAbsolutePath());
-        });
+        JButton outBtn = saveButton(outPath);
 
         JTextField keyField = new JTextField();
         JButton encBtn = new JButton("Шифровать");
         JButton decBtn = new JButton("Расшифровать");
+        TaskPanel task = new TaskPanel(encBtn, decBtn, inBtn, outBtn);
 
-        encBtn.addActionListener(e -> runFile(inPath, outPath, keyField, true));
-        decBtn.addActionListener(e -> runFile(inPath, outPath, keyField, false));
+        encBtn.addActionListener(e -> runFile(inPath, outPath, keyField, true, task));
+        decBtn.addActionListener(e -> runFile(inPath, outPath, keyField, false, task));
 
         c.gridx=0; c.gridy=0; panel.add(new JLabel("Исходный файл:"),c);
-        c.gridx=1; panel.add(inPath,c);
-        c.gridx=2; panel.add(inBtn,c);
+        c.gridx=1; c.weightx=1; panel.add(inPath,c);
+        c.gridx=2; c.weightx=0; panel.add(inBtn,c);
 
         c.gridx=0; c.gridy=1; panel.add(new JLabel("Результат в:"),c);
         c.gridx=1; panel.add(outPath,c);
@@ -77,6 +85,8 @@ public class CipherSwingApp {
         c.gridx=0; c.gridy=3; panel.add(encBtn,c);
         c.gridx=1; panel.add(decBtn,c);
 
+        c.gridx=0; c.gridy=4; c.gridwidth=3; panel.add(task,c);
+
         return panel;
     }
 
@@ -94,36 +104,207 @@ public class CipherSwingApp {
         north.add(keyField);
         north.add(encBtn);
         north.add(decBtn);
+        JCheckBox liveBox = new JCheckBox("Живой режим");
+        JCheckBox liveDecrypt = new JCheckBox("расшифровывать");
+        north.add(liveBox);
+        north.add(liveDecrypt);
+        // ввод только для чтения, пока идёт операция: правка посреди шифрования сдвинула бы блоки.
+        // Живой режим на это время тоже не включить, а после операции кнопки остаются в его состоянии
+        TaskPanel task = new TaskPanel(encBtn, decBtn, input, liveBox);
+
+        encBtn.addActionListener(e -> runText(input, output, keyField, false, task));
+        decBtn.addActionListener(e -> runText(input, output, keyField, true, task));
+
+        // В живом режиме вывод повторяет каждую правку ввода, кнопки не нужны
+        LivePreview preview = new LivePreview(cipher, input, output);
+        Runnable updateLive = () -> preview.setParameters(parseKey(keyField), liveDecrypt.isSelected());
+        keyField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { updateLive.run(); }
+            @Override public void removeUpdate(DocumentEvent e) { updateLive.run(); }
+            @Override public void changedUpdate(DocumentEvent e) { }
+        });
+        liveDecrypt.addActionListener(e -> updateLive.run());
+        liveBox.addActionListener(e -> {
+            boolean live = liveBox.isSelected();
+            encBtn.setEnabled(!live);
+            decBtn.setEnabled(!live);
+            updateLive.run();
+            preview.setEnabled(live);
+        });
+
+        JPanel center = new JPanel(new GridLayout(2, 1, 5, 5));
+        center.add(new JScrollPane(input));
+        center.add(new JScrollPane(output));
+
+        panel.add(north, BorderLayout.NORTH);
+        panel.add(center, BorderLayout.CENTER);
+        panel.add(task, BorderLayout.SOUTH);
+        return panel;
+    }
+
+    private JPanel createBrutePanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        GridBagConstraints c = new GridBagConstraints();
+        c.insets = new Insets(5,5,5,5);
+        c.fill = GridBagConstraints.HORIZONTAL;
+
+        JTextField inPath = new JTextField();
+        JButton inBtn = openButton(inPath);
+        JTextField outPath = new JTextField();
+        JButton outBtn = saveButton(outPath);
+        JButton runBtn = new JButton("Подобрать ключ");
+        TaskPanel task = new TaskPanel(runBtn, inBtn, outBtn);
 
-        encBtn.addActionListener(e -> {
+        runBtn.addActionListener(e -> {
             try {
-                int key = Integer.parseInt(keyField.getText().trim());
-                StringWriter sw = new StringWriter();
-                cipher.transformStream(new StringReader(input.getText()), sw, key, true);
-                output.setText(sw.toString());
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(null, ex.getMessage());
+                Path in = Path.of(inPath.getText().trim());
+                Path out = Path.of(outPath.getText().trim());
+                validator.ensureFileReadable(in);
+                validator.ensureParentWritable(out);
+                task.start("Brute Force", 0, progress -> bruteForce.crackByBruteForce(in, out, validator),
+                        key -> JOptionPane.showMessageDialog(panel, "Найден ключ " + key + ", результат в " + out));
+            } catch (IOException | InvalidPathException ex) {
+                JOptionPane.showMessageDialog(panel, ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
             }
         });
 
-        decBtn.addActionListener(e -> {
+        c.gridx=0; c.gridy=0; panel.add(new JLabel("Шифртекст:"),c);
+        c.gridx=1; c.weightx=1; panel.add(inPath,c);
+        c.gridx=2; c.weightx=0; panel.add(inBtn,c);
+
+        c.gridx=0; c.gridy=1; panel.add(new JLabel("Результат в:"),c);
+        c.gridx=1; panel.add(outPath,c);
+        c.gridx=2; panel.add(outBtn,c);
+
+        c.gridx=0; c.gridy=2; panel.add(runBtn,c);
+        c.gridx=0; c.gridy=3; c.gridwidth=3; panel.add(task,c);
+        return panel;
+    }
+
+    private JPanel createStatPanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        GridBagConstraints c = new GridBagConstraints();
+        c.insets = new Insets(5,5,5,5);
+        c.fill = GridBagConstraints.HORIZONTAL;
+
+        JTextField inPath = new JTextField();
+        JButton inBtn = openButton(inPath);
+        JTextField samplePath = new JTextField();
+        JButton sampleBtn = openButton(samplePath);
+        JTextField outPath = new JTextField();
+        JButton outBtn = saveButton(outPath);
+        JButton runBtn = new JButton("Анализировать");
+        TaskPanel task = new TaskPanel(runBtn, inBtn, sampleBtn, outBtn);
+
+        runBtn.addActionListener(e -> {
             try {
-                int key = Integer.parseInt(keyField.getText().trim());
-                StringWriter sw = new StringWriter();
-                cipher.transformStream(new StringReader(input.getText()), sw, key, false);
-                output.setText(sw.toString());
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(null, ex.getMessage());
+                Path in = Path.of(inPath.getText().trim());
+                Path sample = Path.of(samplePath.getText().trim());
+                Path out = Path.of(outPath.getText().trim());
+                validator.ensureFileReadable(in);
+                validator.ensureFileReadable(sample);
+                validator.ensureParentWritable(out);
+                task.start("Stat Crack", 0, progress -> statAnalyzer.crackByStatAnalysis(in, sample, out, validator),
+                        (StatCrackResult r) -> JOptionPane.showMessageDialog(panel, String.format(
+                                "Найден ключ %d (χ²=%.4f, отрыв %.3f), результат в %s", r.key(), r.chiSquared(), r.margin(), out)));
+            } catch (IOException | InvalidPathException ex) {
+                JOptionPane.showMessageDialog(panel, ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
             }
         });
 
-        panel.add(north, BorderLayout.NORTH);
-        panel.add(new JScrollPane(input), BorderLayout.CENTER);
-        panel.add(new JScrollPane(output), BorderLayout.SOUTH);
+        c.gridx=0; c.gridy=0; panel.add(new JLabel("Шифртекст:"),c);
+        c.gridx=1; c.weightx=1; panel.add(inPath,c);
+        c.gridx=2; c.weightx=0; panel.add(inBtn,c);
+
+        c.gridx=0; c.gridy=1; panel.add(new JLabel("Образец или профиль:"),c);
+        c.gridx=1; panel.add(samplePath,c);
+        c.gridx=2; panel.add(sampleBtn,c);
+
+        c.gridx=0; c.gridy=2; panel.add(new JLabel("Результат в:"),c);
+        c.gridx=1; panel.add(outPath,c);
+        c.gridx=2; panel.add(outBtn,c);
+
+        c.gridx=0; c.gridy=3; panel.add(runBtn,c);
+        c.gridx=0; c.gridy=4; c.gridwidth=3; panel.add(task,c);
         return panel;
     }
 
-    private void runFile(JTextField inPath, JTextField outPath, JTextField keyField, boolean encrypt) {
+    // -1, если ключ не число или вне диапазона
+    private int parseKey(JTextField keyField) {
+        try {
+            int key = Integer.parseInt(keyField.getText().trim());
+            validator.ensureKeyInRange(key);
+            return key;
+        } catch (IOException | NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private JButton openButton(JTextField target) {
+        JButton btn = new JButton("Выбрать");
+        btn.addActionListener(e -> {
+            JFileChooser fc = new JFileChooser();
+            fc.setFileFilter(new FileNameExtensionFilter("Text files", "txt"));
+            if (fc.showOpenDialog(null)==JFileChooser.APPROVE_OPTION)
+                target.setText(fc.getSelectedFile().getAbsolutePath());
+        });
+        return btn;
+    }
+
+    private JButton saveButton(JTextField target) {
+        JButton btn = new JButton("Сохранить в");
+        btn.addActionListener(e -> {
+            JFileChooser fc = new JFileChooser();
+            fc.setFileFilter(new FileNameExtensionFilter("Text files", "txt"));
+            if (fc.showSaveDialog(null)==JFileChooser.APPROVE_OPTION)
+                target.setText(fc.getSelectedFile().getAbsolutePath());
+        });
+        return btn;
+    }
+
+    private void runText(JTextArea input, JTextArea output, JTextField keyField, boolean decrypt, TaskPanel task) {
+        int key;
+        try {
+            key = Integer.parseInt(keyField.getText().trim());
+            validator.ensureKeyInRange(key);
+        } catch (IOException | NumberFormatException ex) {
+            JOptionPane.showMessageDialog(null, ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        Document src = input.getDocument();
+        Document dst = output.getDocument();
+        int length = src.getLength();
+        output.setText("");
+
+        task.start(decrypt ? "Расшифровка" : "Шифрование", length, progress -> {
+            char[] in = new char[TEXT_CHUNK];
+            char[] out = new char[TEXT_CHUNK];
+            for (int off = 0; off < length; ) {
+                int len = Math.min(TEXT_CHUNK, length - off);
+                int n = LivePreview.readChunk(src, off, len, in);
+                if (n == 0) {
+                    break; // документ укоротился
+                }
+                cipher.transform(in, 0, n, out, 0, key, decrypt);
+                String chunk = new String(out, 0, n);
+                SwingUtilities.invokeLater(() -> {
+                    try {
+                        dst.insertString(dst.getLength(), chunk, null);
+                    } catch (BadLocationException ignored) {
+                        // вставка в конец документа всегда допустима
+                    }
+                });
+                off += n;
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Операция прервана");
+                }
+                progress.accept(off);
+            }
+            return null;
+        }, ignored -> { });
+    }
+
+    private void runFile(JTextField inPath, JTextField outPath, JTextField keyField, boolean encrypt, TaskPanel task) {
         try {
             Path in = Path.of(inPath.getText().trim());
             Path out = Path.of(outPath.getText().trim());
@@ -131,13 +312,13 @@ public class CipherSwingApp {
             validator.ensureFileReadable(in);
             validator.ensureParentWritable(out);
             validator.ensureKeyInRange(key);
-            try (Reader r = FileManager.newReader(in);
-                 Writer w = FileManager.newWriter(out)) {
-                cipher.transformStream(r,w,key,encrypt);
-            }
-            JOptionPane.showMessageDialog(null, (encrypt?"Зашифровано":"Расшифровано")+" в "+out);
-        } catch (IOException | NumberFormatException ex) {
+            long size = Files.size(in);
+            task.start(encrypt ? "Шифрование" : "Расшифровка", size,
+                    progress -> files.transform(in, out, key, !encrypt, progress),
+                    charset -> JOptionPane.showMessageDialog(null,
+                            (encrypt ? "Зашифровано" : "Расшифровано") + " в " + out + " (" + charset.name() + ")"));
+        } catch (IOException | NumberFormatException | InvalidPathException ex) {
             JOptionPane.showMessageDialog(null, ex.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,196 @@
+package org.example.gui;
+
+import org.example.cipher.CaesarCipher;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
+import javax.swing.text.Segment;
+
+/**
+ * Живой режим текстовой вкладки. Шифр Цезаря посимвольный, поэтому правка входного документа
+ * переносится в выходной по тем же смещениям: вставка шифруется только вставленный фрагмент,
+ * удаление удаляет тот же диапазон. Смена ключа или направления перестраивает вывод в фоне;
+ * частые смены объединяются таймером, а незавершённая перестройка отменяется.
+ */
+class LivePreview implements DocumentListener {
+
+    private static final int REBUILD_DELAY_MS = 250;
+    private static final int CHUNK = 64 * 1024;
+
+    private final CaesarCipher cipher;
+    private final JTextArea input;
+    private final JTextArea output;
+    private final Timer rebuildTimer;
+
+    private boolean enabled;
+    private int key = -1;
+    private boolean decrypt;
+    // Растёт при каждой правке и перестройке: результат устаревшей перестройки отбрасывается
+    private long generation;
+    private SwingWorker<Document, Void> rebuild;
+
+    LivePreview(CaesarCipher cipher, JTextArea input, JTextArea output) {
+        this.cipher = cipher;
+        this.input = input;
+        this.output = output;
+        this.rebuildTimer = new Timer(REBUILD_DELAY_MS, e -> startRebuild());
+        this.rebuildTimer.setRepeats(false);
+        input.getDocument().addDocumentListener(this);
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (enabled) {
+            scheduleRebuild();
+        } else {
+            rebuildTimer.stop();
+            cancelRebuild();
+        }
+    }
+
+    // key < 0 — ключ не задан или неверен: вывод очищается до исправления
+    void setParameters(int key, boolean decrypt) {
+        if (key == this.key && decrypt == this.decrypt) return;
+        this.key = key;
+        this.decrypt = decrypt;
+        if (enabled) scheduleRebuild();
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        generation++;
+        if (!canApply()) {
+            scheduleRebuild();
+            return;
+        }
+        try {
+            int off = e.getOffset();
+            int len = e.getLength();
+            Segment seg = new Segment();
+            input.getDocument().getText(off, len, seg);
+            char[] out = new char[seg.count];
+            cipher.transform(seg.array, seg.offset, seg.count, out, 0, key, decrypt);
+            output.getDocument().insertString(off, new String(out), null);
+        } catch (BadLocationException ex) {
+            scheduleRebuild();
+        }
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        generation++;
+        if (!canApply()) {
+            scheduleRebuild();
+            return;
+        }
+        try {
+            output.getDocument().remove(e.getOffset(), e.getLength());
+        } catch (BadLocationException ex) {
+            scheduleRebuild();
+        }
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+        // атрибуты простого текста не влияют на шифр
+    }
+
+    // Правку можно перенести, только если вывод уже соответствует входу
+    private boolean canApply() {
+        return enabled && key >= 0 && rebuild == null && !rebuildTimer.isRunning();
+    }
+
+    private void scheduleRebuild() {
+        if (!enabled) return;
+        cancelRebuild();
+        rebuildTimer.restart();
+    }
+
+    private void cancelRebuild() {
+        if (rebuild != null) {
+            rebuild.cancel(true);
+            rebuild = null;
+        }
+    }
+
+    private void startRebuild() {
+        cancelRebuild();
+        if (key < 0) {
+            output.setDocument(new PlainDocument());
+            return;
+        }
+        long started = ++generation;
+        int k = key;
+        boolean dec = decrypt;
+        Document src = input.getDocument();
+        int length = src.getLength();
+
+        SwingWorker<Document, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Document doInBackground() throws Exception {
+                // Новый документ ещё не показан, его можно наполнять вне EDT
+                Document dst = new PlainDocument();
+                char[] in = new char[CHUNK];
+                char[] out = new char[CHUNK];
+                for (int off = 0, n; off < length && !isCancelled(); off += n) {
+                    n = readChunk(src, off, Math.min(CHUNK, length - off), in);
+                    if (n == 0) {
+                        break;
+                    }
+                    cipher.transform(in, 0, n, out, 0, k, dec);
+                    dst.insertString(dst.getLength(), new String(out, 0, n), null);
+                }
+                return dst;
+            }
+
+            @Override
+            protected void done() {
+                if (rebuild != this) return;
+                rebuild = null;
+                if (isCancelled()) return;
+                if (generation != started) {
+                    // вход изменился во время перестройки — начинаем заново
+                    scheduleRebuild();
+                    return;
+                }
+                try {
+                    output.setDocument(get());
+                } catch (Exception ex) {
+                    scheduleRebuild();
+                }
+            }
+        };
+        rebuild = worker;
+        worker.execute();
+    }
+
+    // Чтение под блокировкой документа: из фонового потока можно только через render.
+    // Segment может указывать во внутренний буфер документа, поэтому символы копируются в dst
+    // до снятия блокировки. Возвращает число скопированных символов (меньше len, если документ укоротился)
+    static int readChunk(Document doc, int off, int len, char[] dst) throws BadLocationException {
+        BadLocationException[] failure = new BadLocationException[1];
+        int[] copied = new int[1];
+        doc.render(() -> {
+            try {
+                Segment seg = new Segment();
+                seg.setPartialReturn(true);
+                int n = Math.min(len, doc.getLength() - off);
+                while (copied[0] < n) {
+                    doc.getText(off + copied[0], n - copied[0], seg);
+                    System.arraycopy(seg.array, seg.offset, dst, copied[0], seg.count);
+                    copied[0] += seg.count;
+                }
+            } catch (BadLocationException ex) {
+                failure[0] = ex;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return copied[0];
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.gui;
+
+import javax.swing.*;
+import javax.swing.text.JTextComponent;
+import java.awt.*;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Полоса прогресса, строка состояния и кнопка отмены для долгой операции.
+ * Операция выполняется в SwingWorker; на время работы заданные элементы управления блокируются,
+ * а после неё возвращаются в прежнее состояние: выключенная до запуска кнопка выключенной и остаётся.
+ */
+class TaskPanel extends JPanel {
+
+    private static final long serialVersionUID = 1L;
+
+    @FunctionalInterface
+    interface Job<T> {
+        T run(LongConsumer progress) throws Exception;
+    }
+
+    private final JProgressBar bar = new JProgressBar(0, 1000);
+    private final JLabel status = new JLabel(" ");
+    private final JButton cancelBtn = new JButton("Отмена");
+    private final JComponent[] controls;
+    private final boolean[] idle;
+    private SwingWorker<?, Long> current;
+
+    TaskPanel(JComponent... controls) {
+        super(new BorderLayout(5, 5));
+        this.controls = controls;
+        this.idle = new boolean[controls.length];
+        bar.setStringPainted(true);
+        cancelBtn.setEnabled(false);
+        cancelBtn.addActionListener(e -> {
+            if (current != null) current.cancel(true);
+        });
+        add(bar, BorderLayout.CENTER);
+        add(cancelBtn, BorderLayout.EAST);
+        add(status, BorderLayout.SOUTH);
+    }
+
+    // total — объём работы в байтах (символах); 0 — неопределённый прогресс
+    <T> void start(String title, long total, Job<T> job, Consumer<T> onSuccess) {
+        long started = System.nanoTime();
+        setBusy(true);
+        bar.setIndeterminate(total <= 0);
+        bar.setValue(0);
+        bar.setString(total <= 0 ? title : "0%");
+        status.setText(title + "…");
+
+        current = new SwingWorker<T, Long>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return job.run(this::publish);
+            }
+
+            @Override
+            protected void process(List<Long> chunks) {
+                long done = chunks.get(chunks.size() - 1);
+                double seconds = Math.max((System.nanoTime() - started) / 1e9, 1e-3);
+                if (total > 0) {
+                    int permille = (int) Math.min(1000, done * 1000 / total);
+                    bar.setValue(permille);
+                    bar.setString(permille / 10 + "%");
+                }
+                status.setText(String.format("%s: %.1f МБ, %.1f МБ/с", title, done / 1048576.0, done / 1048576.0 / seconds));
+            }
+
+            @Override
+            protected void done() {
+                setBusy(false);
+                bar.setIndeterminate(false);
+                double seconds = (System.nanoTime() - started) / 1e9;
+                try {
+                    T result = get();
+                    bar.setValue(bar.getMaximum());
+                    bar.setString("100%");
+                    status.setText(String.format("%s: готово за %.2f с", title, seconds));
+                    onSuccess.accept(result);
+                } catch (CancellationException ex) {
+                    bar.setString("Отменено");
+                    status.setText(title + ": отменено");
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    bar.setString("Ошибка");
+                    status.setText(title + ": ошибка");
+                    JOptionPane.showMessageDialog(TaskPanel.this, cause.getMessage(), "Ошибка", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        current.execute();
+    }
+
+    private void setBusy(boolean busy) {
+        for (int i = 0; i < controls.length; i++) {
+            JComponent c = controls[i];
+            // текст остаётся доступным для чтения и выделения, запрещается только правка
+            if (c instanceof JTextComponent) {
+                JTextComponent text = (JTextComponent) c;
+                if (busy) idle[i] = text.isEditable();
+                text.setEditable(!busy && idle[i]);
+            } else {
+                if (busy) idle[i] = c.isEnabled();
+                c.setEnabled(!busy && idle[i]);
+            }
+        }
+        cancelBtn.setEnabled(busy);
+    }
+}
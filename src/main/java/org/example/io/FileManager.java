@@ -1,21 +1,209 @@
 package org.example.io;
 
+import org.example.metrics.MeteredInputStream;
+import org.example.metrics.MeteredOutputStream;
+
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Открытие файлов и выбор кодировки. Поддерживаются UTF-8, Cp1251 и KOI8-R; кодировка входного
+ * файла определяется по 64 КБ, начиная с первого не-ASCII байта ({@link #detect}), если не задана свойством
+ * {@code -Dcaesar.charset=UTF-8|Cp1251|KOI8-R}. Экземпляры Charset кэшируются.
+ */
 public final class FileManager {
 
+    public static final Charset UTF_8 = StandardCharsets.UTF_8;
+    public static final Charset CP1251 = Charset.forName("Cp1251");
+    public static final Charset KOI8_R = Charset.forName("KOI8-R");
+
+    public static final List<Charset> SUPPORTED = List.of(UTF_8, CP1251, KOI8_R);
+
+    // Сколько байт с начала файла смотрит detect
+    private static final int DETECT_BYTES = 64 * 1024;
+
+    private static final Map<String, Charset> CHARSETS = new ConcurrentHashMap<>();
+    private static final Charset FORCED = forced(System.getProperty("caesar.charset"));
+    private static final Charset CHARSET = FORCED != null ? FORCED : CP1251;
+
     private FileManager() { }  
 
+    // Кодировка по умолчанию: для новых файлов и потоков без явной кодировки
+    public static Charset charset() {
+        return CHARSET;
+    }
+
+    // Кэшированный Charset по имени или псевдониму (utf8, cp1251, windows-1251, koi8-r...)
+    public static Charset charset(String name) {
+        return CHARSETS.computeIfAbsent(name.toLowerCase(Locale.ROOT), n -> {
+            for (Charset c : SUPPORTED) {
+                if (c.name().equalsIgnoreCase(n) || c.aliases().stream().anyMatch(a -> a.equalsIgnoreCase(n))) {
+                    return c;
+                }
+            }
+            throw new IllegalArgumentException("Неподдерживаемая кодировка: " + name + ", допустимы " + SUPPORTED);
+        });
+    }
+
+    // Кодировка входного файла: заданная свойством caesar.charset или определённая по содержимому
+    public static Charset charsetFor(Path input) throws IOException {
+        return FORCED != null ? FORCED : detect(input);
+    }
+
+    public static Charset detect(Path input) throws IOException {
+        byte[] head;
+        try (InputStream in = readable(input, () -> Files.newInputStream(input))) {
+            // лишний байт отличает файл ровно в DETECT_BYTES от обрезанного начала длинного файла
+            head = in.readNBytes(DETECT_BYTES + 1);
+            // по ASCII-началу кодировку не определить: окно сдвигается к первому байту старше 0x7F,
+            // чтобы попавшая в конец окна буква не отрезалась как оборванная последовательность
+            int skip;
+            while (head.length > DETECT_BYTES && (skip = asciiLength(head, DETECT_BYTES)) > 0) {
+                byte[] next = Arrays.copyOfRange(head, skip, skip + DETECT_BYTES + 1);
+                int kept = head.length - skip;
+                int read = in.readNBytes(next, kept, next.length - kept);
+                head = kept + read == next.length ? next : Arrays.copyOf(next, kept + read);
+            }
+        }
+        boolean complete = head.length <= DETECT_BYTES;
+        return detect(head, Math.min(head.length, DETECT_BYTES), complete);
+    }
+
+    /**
+     * UTF-8 — если есть BOM или байты старше 0x7F образуют корректный UTF-8. Обрыв последовательности
+     * в конце допускается, только если буфер — начало более длинного файла (complete = false): в целом
+     * файле висячий ведущий байт — это скорее буква однобайтовой кодировки. Иначе выбирается та из однобайтовых кодировок,
+     * в которой больше строчных русских букв: строчные в Cp1251 — это заглавные в KOI8-R и наоборот,
+     * а в обычном тексте строчных гораздо больше. Чистый ASCII — кодировка по умолчанию.
+     */
+    public static Charset detect(byte[] head, int len, boolean complete) {
+        if (len >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) {
+            return UTF_8;
+        }
+        if (asciiLength(head, len) == len) {
+            return CHARSET;
+        }
+        if (isUtf8(head, len, complete)) {
+            return UTF_8;
+        }
+        return lowercaseCyrillic(head, len, CP1251) >= lowercaseCyrillic(head, len, KOI8_R) ? CP1251 : KOI8_R;
+    }
+
+    // Длина начала буфера из одних ASCII-байт
+    private static int asciiLength(byte[] head, int len) {
+        int i = 0;
+        while (i < len && head[i] >= 0) i++;
+        return i;
+    }
+
+    private static boolean isUtf8(byte[] head, int len, boolean complete) {
+        // незаконченный буфер мог оборвать последовательность: отрезаем её, начиная с ведущего байта
+        int checked = len;
+        if (!complete) {
+            int lead = len - 1;
+            while (lead > 0 && lead > len - 4 && (head[lead] & 0xC0) == 0x80) lead--;
+            if (lead >= 0 && head[lead] < 0) checked = lead;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(head, 0, checked);
+        try {
+            UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(bytes);
+            return true;
+        } catch (CharacterCodingException ex) {
+            return false;
+        }
+    }
+
+    private static int lowercaseCyrillic(byte[] head, int len, Charset charset) {
+        CharBuffer chars = charset.decode(ByteBuffer.wrap(head, 0, len));
+        int count = 0;
+        while (chars.hasRemaining()) {
+            char ch = chars.get();
+            if ((ch >= 'а' && ch <= 'я') || ch == 'ё') count++;
+        }
+        return count;
+    }
+
+    private static Charset forced(String name) {
+        return name == null || name.isBlank() || name.equalsIgnoreCase("auto") ? null : charset(name);
+    }
+
+    // Читает в кодировке, определённой charsetFor
     public static BufferedReader newReader(Path input) throws IOException {
-        return Files.newBufferedReader(input, Charset.forName("Cp1251"));
+        return newReader(input, charsetFor(input));
+    }
+
+    // Как Files.newBufferedReader, но время ожидания диска попадает в метрики io.read.*
+    public static BufferedReader newReader(Path input, Charset charset) throws IOException {
+        return new BufferedReader(new InputStreamReader(
+                new MeteredInputStream(readable(input, () -> Files.newInputStream(input))), charset.newDecoder()));
     }
 
     public static BufferedWriter newWriter(Path output) throws IOException {
-        return Files.newBufferedWriter(output, Charset.forName("Cp1251"));
+        return newWriter(output, CHARSET);
+    }
+
+    public static BufferedWriter newWriter(Path output, Charset charset) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(
+                new MeteredOutputStream(Files.newOutputStream(output)), charset.newEncoder()));
+    }
+
+    public static AsynchronousFileChannel newAsyncReadChannel(Path input) throws IOException {
+        return readable(input, () -> AsynchronousFileChannel.open(input, StandardOpenOption.READ));
+    }
+
+    // Без truncate существующий файл сохраняется: так продолжают прерванную запись с контрольной точки
+    public static AsynchronousFileChannel newAsyncWriteChannel(Path output, boolean truncate) throws IOException {
+        return truncate
+                ? AsynchronousFileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING)
+                : AsynchronousFileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+    }
+
+    public static FileChannel newReadChannel(Path input) throws IOException {
+        return readable(input, () -> FileChannel.open(input, StandardOpenOption.READ));
+    }
+
+    @FunctionalInterface
+    private interface Opener<T> {
+        T open() throws IOException;
+    }
+
+    // Validator не проверяет право чтения заранее: отказ всплывает при первом открытии входа
+    private static <T> T readable(Path input, Opener<T> opener) throws IOException {
+        try {
+            return opener.open();
+        } catch (AccessDeniedException ex) {
+            throw new IOException("Файл недоступен для чтения: " + input, ex);
+        }
+    }
+
+    // Канал открыт и на чтение: без этого FileChannel.map в режиме READ_WRITE не работает
+    public static FileChannel newWriteChannel(Path output) throws IOException {
+        return FileChannel.open(output, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
     }
 }
@@ -0,0 +1,37 @@
+package org.example.io;
+
+/**
+ * Итог конвейерной обработки: объёмы, откуда продолжена работа и сколько времени каждая стадия
+ * была занята: шифрование — собственной работой, чтение и запись — ожиданием диска (ввод-вывод
+ * асинхронный). Ожидание соседних стадий не учитывается. Загрузка стадии — доля этого времени
+ * от общего; стадия с наибольшей загрузкой и есть узкое место.
+ */
+public record PipelineReport(long inputBytes, long outputBytes, long resumedFrom, long elapsedNanos,
+                             long readNanos, long transformNanos, long writeNanos) {
+
+    public double readUtilization() {
+        return utilization(readNanos);
+    }
+
+    public double transformUtilization() {
+        return utilization(transformNanos);
+    }
+
+    public double writeUtilization() {
+        return utilization(writeNanos);
+    }
+
+    public String bottleneck() {
+        if (readNanos >= transformNanos && readNanos >= writeNanos) return "чтение";
+        return transformNanos >= writeNanos ? "шифрование" : "запись";
+    }
+
+    // Пропускная способность по байтам, обработанным в этом запуске
+    public double megabytesPerSecond() {
+        return (inputBytes - resumedFrom) / 1048576.0 / Math.max(elapsedNanos / 1e9, 1e-9);
+    }
+
+    private double utilization(long stageNanos) {
+        return elapsedNanos == 0 ? 0 : Math.min(1.0, (double) stageNanos / elapsedNanos);
+    }
+}
@@ -0,0 +1,596 @@
+package org.example.io;
+
+import org.example.cipher.ByteCaesarCipher;
+import org.example.cipher.CaesarCipher;
+import org.example.cipher.Utf8CaesarCipher;
+import org.example.metrics.Counter;
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.Metrics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Конвейерное шифрование файла: чтение, шифрование и запись идут одновременно в трёх потоках
+ * и передают друг другу блоки из кольца переиспользуемых буферов, так что диск не простаивает
+ * во время шифрования, а процессор — во время чтения. Ввод-вывод — позиционный, через
+ * {@link AsynchronousFileChannel}: в каждый свободный буфер сразу запускается чтение очередного блока,
+ * а запись блока не ждёт завершения предыдущей.
+ * <p>
+ * Каждые checkpointInterval байт выход сбрасывается на диск и в файл контрольной точки
+ * записываются смещения уже записанных данных и CRC32 выхода до них. Прерванная работа с той же
+ * контрольной точкой продолжается с этих смещений, если начало выхода совпадает с контрольной суммой;
+ * всё, что записано после точки (при kill -9 часть записей успевает дойти до диска), отрезается.
+ * Выход, изменённый в зафиксированной части, обрабатывается заново. После успешного завершения
+ * контрольная точка удаляется.
+ * <p>
+ * Однобайтовые кодировки шифруются на месте в прямых буферах. UTF-8 — через {@link Utf8CaesarCipher},
+ * которому нужны буферы на массивах; блок обрезается по границе символа (хвост переносится в начало
+ * следующего блока), а если алфавит меняет длину символов, у блока есть отдельный выходной буфер
+ * и смещения входа и выхода расходятся.
+ */
+public class PipelinedFileCipher {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+    public static final int DEFAULT_RING_SIZE = 4;
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 64L * 1024 * 1024;
+
+    private static final Counter BYTES = Metrics.counter(Metrics.CIPHER_BYTES);
+    private static final LatencyHistogram READ_TIME = Metrics.histogram("pipeline.read");
+    private static final LatencyHistogram TRANSFORM_TIME = Metrics.histogram("pipeline.transform");
+    private static final LatencyHistogram WRITE_TIME = Metrics.histogram("pipeline.write");
+
+    private static final int CHECKPOINT_MAGIC = 0x43534350; // "CSCP"
+    private static final int CHECKPOINT_VERSION = 3;
+    // хвост незаконченного символа UTF-8, переносимый в следующий блок, не длиннее трёх байт
+    private static final int PAD = 3;
+
+    private final TextFileCipher files;
+    private final int blockSize;
+    private final int ringSize;
+    private final long checkpointInterval;
+
+    public PipelinedFileCipher(CaesarCipher cipher) {
+        this(new TextFileCipher(cipher), DEFAULT_BLOCK_SIZE, DEFAULT_RING_SIZE, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    public PipelinedFileCipher(TextFileCipher files, int blockSize, int ringSize, long checkpointInterval) {
+        if (blockSize < 16 || ringSize < 2 || checkpointInterval <= 0) {
+            throw new IllegalArgumentException("Нужны блок от 16 байт, кольцо от 2 буферов и положительный интервал");
+        }
+        this.files = files;
+        this.blockSize = blockSize;
+        this.ringSize = ringSize;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    // Контрольная точка по умолчанию лежит рядом с выходным файлом
+    public static Path defaultCheckpoint(Path output) {
+        return output.resolveSibling(output.getFileName() + ".ckpt");
+    }
+
+    public PipelineReport transform(Path input, Path output, int key, boolean decrypt) throws IOException {
+        return transform(input, output, defaultCheckpoint(output), key, decrypt, done -> { });
+    }
+
+    // progress получает число байт входа, уже записанных в выход (вместе с обработанными до возобновления)
+    public PipelineReport transform(Path input, Path output, Path checkpoint, int key, boolean decrypt,
+                                    LongConsumer progress) throws IOException {
+        Charset charset = FileManager.charsetFor(input);
+        BlockFormat format = format(charset, key, decrypt);
+        BasicFileAttributes attrs = Files.readAttributes(input, BasicFileAttributes.class);
+        Checkpoint expected = new Checkpoint(attrs.size(), attrs.lastModifiedTime().toMillis(), charset.name(),
+                files.alphabet().id(), key, decrypt, 0, 0, 0);
+        Checkpoint resume = Checkpoint.read(checkpoint);
+        CRC32 crc = resume != null && resume.sameJob(expected) ? resume.verifyOutput(output) : null;
+        if (crc == null) {
+            resume = null;
+            crc = new CRC32();
+        }
+        long inStart = resume != null ? resume.inputOffset : 0;
+        long outStart = resume != null ? resume.outputOffset : 0;
+
+        long t0 = System.nanoTime();
+        try (AsynchronousFileChannel in = FileManager.newAsyncReadChannel(input);
+             AsynchronousFileChannel out = FileManager.newAsyncWriteChannel(output, resume == null)) {
+            // хвост после контрольной точки мог быть записан не полностью
+            out.truncate(outStart);
+            Pipeline p = new Pipeline(in, out, format, attrs.size(), inStart, outStart, crc, expected, checkpoint,
+                    progress);
+            p.run();
+            out.force(false);
+            Files.deleteIfExists(checkpoint);
+            PipelineReport report = new PipelineReport(attrs.size(), p.outCommitted, inStart, System.nanoTime() - t0,
+                    p.readNanos, p.transformNanos, p.writeNanos);
+            READ_TIME.record(p.readNanos);
+            TRANSFORM_TIME.record(p.transformNanos);
+            WRITE_TIME.record(p.writeNanos);
+            return report;
+        }
+    }
+
+    private BlockFormat format(Charset charset, int key, boolean decrypt) throws IOException {
+        ByteCaesarCipher bytes = files.byteCipher(charset, key, decrypt);
+        if (bytes != null) {
+            return new BlockFormat(true, 1) {
+                @Override
+                int transform(ByteBuffer src, ByteBuffer dst) {
+                    bytes.transform(src.duplicate(), src, key, decrypt);
+                    return src.limit();
+                }
+            };
+        }
+        if (!charset.equals(FileManager.UTF_8)) {
+            throw new IOException("Конвейер поддерживает только однобайтовые кодировки и UTF-8: " + charset.name());
+        }
+        Utf8CaesarCipher utf8 = files.utf8();
+        boolean inPlace = utf8.isLengthPreserving();
+        return new BlockFormat(false, inPlace ? 1 : utf8.maxGrowth()) {
+            @Override
+            int cut(ByteBuffer block) {
+                return Utf8CaesarCipher.completeLength(block);
+            }
+
+            @Override
+            int transform(ByteBuffer src, ByteBuffer dst) {
+                ByteBuffer target = inPlace ? src.duplicate() : dst.clear();
+                utf8.transform(src, target, key, decrypt);
+                // оборванная последовательность в конце файла переносится как есть
+                if (!inPlace && src.hasRemaining()) target.put(src);
+                return inPlace ? src.limit() : target.position();
+            }
+        };
+    }
+
+    // Как блок шифруется и где его можно обрезать
+    private abstract static class BlockFormat {
+        final boolean direct;
+        final int growth;
+
+        BlockFormat(boolean direct, int growth) {
+            this.direct = direct;
+            this.growth = growth;
+        }
+
+        // Длина блока без незаконченного символа в конце; вызывается для всех блоков, кроме последнего
+        int cut(ByteBuffer block) {
+            return block.limit();
+        }
+
+        // src — прочитанный блок от 0 до limit; возвращает длину результата, который лежит в dst (или в src)
+        abstract int transform(ByteBuffer src, ByteBuffer dst);
+    }
+
+    private static final class Slot {
+        // вход читается с позиции PAD: перед ним встаёт хвост незаконченного символа из прошлого блока
+        final ByteBuffer in;
+        // отдельный выход, если длина меняется; иначе null и результат остаётся в block
+        final ByteBuffer out;
+        CompletableFuture<Void> io;
+        long readAt;
+        int readLength;
+        ByteBuffer block;
+        long inStart;
+        int outLength;
+
+        Slot(ByteBuffer in, ByteBuffer out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        ByteBuffer result() {
+            return (out != null ? out : block).duplicate().position(0).limit(outLength);
+        }
+    }
+
+    // Доводит позиционную операцию до конца буфера: канал вправе прочитать или записать меньше.
+    // Вложение — позиция в файле, с которой продолжается операция
+    private static final class Transfer implements CompletionHandler<Integer, Long> {
+        final AsynchronousFileChannel channel;
+        final ByteBuffer buf;
+        final boolean write;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Transfer(AsynchronousFileChannel channel, ByteBuffer buf, boolean write) {
+            this.channel = channel;
+            this.buf = buf;
+            this.write = write;
+        }
+
+        CompletableFuture<Void> start(long pos) {
+            next(pos);
+            return done;
+        }
+
+        private void next(long pos) {
+            try {
+                if (write) {
+                    channel.write(buf, pos, pos, this);
+                } else {
+                    channel.read(buf, pos, pos, this);
+                }
+            } catch (RuntimeException ex) {
+                done.completeExceptionally(ex);
+            }
+        }
+
+        @Override
+        public void completed(Integer n, Long pos) {
+            if (n < 0) {
+                done.completeExceptionally(new IOException("Файл укоротился во время чтения: " + pos));
+            } else if (buf.hasRemaining()) {
+                next(pos + n);
+            } else {
+                done.complete(null);
+            }
+        }
+
+        @Override
+        public void failed(Throwable ex, Long pos) {
+            done.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Чтение заранее запускается во все свободные буферы кольца, запись — не дожидаясь предыдущей;
+     * буфер возвращается в кольцо, когда его запись завершилась. Время чтения и записи в отчёте —
+     * это время, которое стадия ждала диск, а не длительность отдельных операций.
+     */
+    private final class Pipeline {
+        private final Slot end = new Slot(null, null);
+        private final AsynchronousFileChannel in;
+        private final AsynchronousFileChannel out;
+        private final BlockFormat format;
+        private final long size;
+        private final long inStart;
+        private final Checkpoint job;
+        private final Path checkpoint;
+        private final LongConsumer progress;
+        // на одно место больше кольца: при сбое туда кладётся end, чтобы разбудить чтение
+        private final BlockingQueue<Slot> free = new ArrayBlockingQueue<>(ringSize + 1);
+        private final BlockingQueue<Slot> toTransform = new ArrayBlockingQueue<>(ringSize + 1);
+        private final BlockingQueue<Slot> toWrite = new ArrayBlockingQueue<>(ringSize + 1);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        // контрольная сумма выхода до outCommitted; меняется только в потоке записи
+        private final CRC32 crc;
+
+        long readNanos;
+        volatile long transformNanos;
+        volatile long writeNanos;
+        volatile long inCommitted;
+        volatile long outCommitted;
+
+        Pipeline(AsynchronousFileChannel in, AsynchronousFileChannel out, BlockFormat format, long size,
+                 long inStart, long outStart, CRC32 crc, Checkpoint job, Path checkpoint, LongConsumer progress) {
+            this.in = in;
+            this.out = out;
+            this.crc = crc;
+            this.format = format;
+            this.size = size;
+            this.inStart = inStart;
+            this.inCommitted = inStart;
+            this.outCommitted = outStart;
+            this.job = job;
+            this.checkpoint = checkpoint;
+            this.progress = progress;
+            for (int i = 0; i < ringSize; i++) {
+                int capacity = PAD + blockSize;
+                ByteBuffer src = format.direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+                free.add(new Slot(src, format.growth == 1 ? null : ByteBuffer.allocate(capacity * format.growth)));
+            }
+        }
+
+        // Чтение идёт в вызывающем потоке, шифрование и запись — в двух своих
+        void run() throws IOException {
+            ExecutorService stages = Executors.newFixedThreadPool(2);
+            try {
+                Future<?> transformer = stages.submit(this::transformStage);
+                Future<?> writer = stages.submit(this::writeStage);
+                readStage();
+                await(transformer);
+                await(writer);
+            } finally {
+                stages.shutdownNow();
+            }
+            Throwable error = failure.get();
+            if (error instanceof IOException) throw (IOException) error;
+            if (error instanceof RuntimeException) throw (RuntimeException) error;
+            if (error != null) throw new IOException(error.getMessage(), error);
+        }
+
+        private void readStage() {
+            Deque<Slot> reading = new ArrayDeque<>();
+            long next = inStart;
+            byte[] tail = new byte[PAD];
+            int tailLength = 0;
+            try {
+                while (failure.get() == null && (next < size || !reading.isEmpty())) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Операция прервана на байте " + inCommitted);
+                    }
+                    if (next < size) {
+                        // пока есть свободные буферы, запускаем в них чтение следующих блоков
+                        Slot s = reading.isEmpty() ? free.take() : free.poll();
+                        if (s == end) break;
+                        if (s != null) {
+                            s.readAt = next;
+                            s.readLength = (int) Math.min(blockSize, size - next);
+                            ByteBuffer target = s.in.duplicate().clear().position(PAD).limit(PAD + s.readLength);
+                            s.io = new Transfer(in, target, false).start(next);
+                            reading.add(s);
+                            next += s.readLength;
+                            continue;
+                        }
+                    }
+                    Slot s = reading.poll();
+                    long t0 = System.nanoTime();
+                    s.io.get();
+                    readNanos += System.nanoTime() - t0;
+
+                    // блок = хвост прошлого блока + прочитанное, без незаконченного символа в конце
+                    int from = PAD - tailLength;
+                    ByteBuffer buf = s.in.clear();
+                    buf.put(from, tail, 0, tailLength);
+                    s.block = buf.limit(PAD + s.readLength).position(from).slice();
+                    s.inStart = s.readAt - tailLength;
+                    int length = s.block.limit();
+                    if (s.inStart + length < size) s.block.limit(format.cut(s.block));
+                    tailLength = length - s.block.limit();
+                    buf.get(from + s.block.limit(), tail, 0, tailLength);
+                    toTransform.put(s);
+                }
+            } catch (Exception ex) {
+                fail(ex);
+            } finally {
+                // буферы с незавершённым чтением нельзя отдавать, пока канал в них пишет
+                for (Slot s : reading) {
+                    s.io.exceptionally(ex -> null).join();
+                }
+                putQuietly(toTransform, end);
+            }
+        }
+
+        private void transformStage() {
+            try {
+                Slot s;
+                while ((s = toTransform.take()) != end) {
+                    if (failure.get() != null) {
+                        free.put(s);
+                        continue;
+                    }
+                    long t0 = System.nanoTime();
+                    s.outLength = format.transform(s.block, s.out);
+                    BYTES.add(s.block.limit());
+                    transformNanos += System.nanoTime() - t0;
+                    toWrite.put(s);
+                }
+            } catch (Exception ex) {
+                fail(ex);
+            } finally {
+                putQuietly(toWrite, end);
+            }
+        }
+
+        private void writeStage() {
+            Deque<Slot> writing = new ArrayDeque<>();
+            long next = outCommitted;
+            long saved = inCommitted;
+            boolean last = false;
+            try {
+                while (!last || !writing.isEmpty()) {
+                    // уже завершённые записи фиксируем сразу, чтобы буферы вернулись в кольцо
+                    while (!writing.isEmpty() && writing.peek().io.isDone()) {
+                        saved = commit(writing.poll(), saved);
+                    }
+                    Slot s = last ? null : writing.isEmpty() ? toWrite.take() : toWrite.poll();
+                    if (s == end) {
+                        last = true;
+                    } else if (s != null) {
+                        if (failure.get() != null) {
+                            free.put(s);
+                            continue;
+                        }
+                        long t0 = System.nanoTime();
+                        s.io = new Transfer(out, s.result(), true).start(next);
+                        next += s.outLength;
+                        writing.add(s);
+                        writeNanos += System.nanoTime() - t0;
+                    } else if (!writing.isEmpty()) {
+                        long t0 = System.nanoTime();
+                        writing.peek().io.get();
+                        writeNanos += System.nanoTime() - t0;
+                    }
+                }
+            } catch (Exception ex) {
+                fail(ex);
+            } finally {
+                for (Slot s : writing) {
+                    s.io.exceptionally(ex -> null).join();
+                }
+                // прерванная работа оставляет точку, с которой её можно продолжить
+                if (failure.get() != null && inCommitted > saved) {
+                    try {
+                        saveCheckpoint();
+                    } catch (IOException ex) {
+                        failure.get().addSuppressed(ex);
+                    }
+                }
+            }
+        }
+
+        // Записи завершаются по порядку запуска: смещения растут только за уже записанными блоками
+        private long commit(Slot s, long saved) throws Exception {
+            s.io.get();
+            long t0 = System.nanoTime();
+            crc.update(s.result());
+            outCommitted += s.outLength;
+            inCommitted = s.inStart + s.block.limit();
+            if (inCommitted - saved >= checkpointInterval) {
+                saveCheckpoint();
+                saved = inCommitted;
+            }
+            writeNanos += System.nanoTime() - t0;
+            progress.accept(inCommitted);
+            free.put(s);
+            return saved;
+        }
+
+        private void saveCheckpoint() throws IOException {
+            out.force(false);
+            job.at(inCommitted, outCommitted, crc.getValue()).write(checkpoint);
+        }
+
+        private void fail(Exception ex) {
+            Throwable cause = ex instanceof ExecutionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                cause = new InterruptedIOException("Операция прервана на байте " + inCommitted);
+            }
+            failure.compareAndSet(null, cause);
+            // освобождаем чтение, если оно ждёт свободный буфер
+            free.offer(end);
+        }
+
+        private void await(Future<?> stage) {
+            try {
+                stage.get();
+            } catch (InterruptedException ex) {
+                fail(ex);
+                stage.cancel(true);
+            } catch (ExecutionException ex) {
+                fail(ex);
+            }
+        }
+
+        private void putQuietly(BlockingQueue<Slot> queue, Slot slot) {
+            try {
+                queue.put(slot);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Смещения уже записанных данных плюс всё, что должно совпасть при возобновлении
+    private static final class Checkpoint {
+        final long inputSize;
+        final long inputModified;
+        final String charset;
+        final String alphabet;
+        final int key;
+        final boolean decrypt;
+        final long inputOffset;
+        final long outputOffset;
+        // CRC32 выхода до outputOffset: чужая правка или подмена файла не даст склеить его с продолжением
+        final long outputCrc;
+
+        Checkpoint(long inputSize, long inputModified, String charset, String alphabet, int key, boolean decrypt,
+                   long inputOffset, long outputOffset, long outputCrc) {
+            this.inputSize = inputSize;
+            this.inputModified = inputModified;
+            this.charset = charset;
+            this.alphabet = alphabet;
+            this.key = key;
+            this.decrypt = decrypt;
+            this.inputOffset = inputOffset;
+            this.outputOffset = outputOffset;
+            this.outputCrc = outputCrc;
+        }
+
+        Checkpoint at(long inputOffset, long outputOffset, long outputCrc) {
+            return new Checkpoint(inputSize, inputModified, charset, alphabet, key, decrypt, inputOffset, outputOffset,
+                    outputCrc);
+        }
+
+        boolean sameJob(Checkpoint other) {
+            return inputSize == other.inputSize && inputModified == other.inputModified
+                    && charset.equals(other.charset) && alphabet.equals(other.alphabet)
+                    && key == other.key && decrypt == other.decrypt;
+        }
+
+        // Сумма зафиксированной части выхода, с которой продолжится подсчёт; null — выход не тот
+        CRC32 verifyOutput(Path output) throws IOException {
+            if (!Files.isRegularFile(output) || Files.size(output) < outputOffset) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            ByteBuffer buf = ByteBuffer.allocateDirect(DEFAULT_BLOCK_SIZE);
+            try (FileChannel in = FileManager.newReadChannel(output)) {
+                for (long pos = 0; pos < outputOffset; ) {
+                    buf.clear().limit((int) Math.min(buf.capacity(), outputOffset - pos));
+                    int n = in.read(buf, pos);
+                    if (n < 0) {
+                        return null;
+                    }
+                    buf.flip();
+                    crc.update(buf);
+                    pos += n;
+                }
+            }
+            return crc.getValue() == outputCrc ? crc : null;
+        }
+
+        // null — контрольной точки нет или она не читается: работа начинается сначала
+        static Checkpoint read(Path path) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION) {
+                    return null;
+                }
+                return new Checkpoint(in.readLong(), in.readLong(), in.readUTF(), in.readUTF(), in.readInt(),
+                        in.readBoolean(), in.readLong(), in.readLong(), in.readLong());
+            } catch (IOException ex) {
+                // нет файла или он недописан — начинаем заново
+                return null;
+            }
+        }
+
+        // Пишется во временный файл и переименовывается: сбой посреди записи не портит прежнюю точку
+        void write(Path path) throws IOException {
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(CHECKPOINT_MAGIC);
+                out.writeInt(CHECKPOINT_VERSION);
+                out.writeLong(inputSize);
+                out.writeLong(inputModified);
+                out.writeUTF(charset);
+                out.writeUTF(alphabet);
+                out.writeInt(key);
+                out.writeBoolean(decrypt);
+                out.writeLong(inputOffset);
+                out.writeLong(outputOffset);
+                out.writeLong(outputCrc);
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.io;
+
+import org.example.cipher.Alphabet;
+import org.example.cipher.ByteCaesarCipher;
+import org.example.cipher.CaesarCipher;
+import org.example.cipher.ParallelFileCipher;
+import org.example.cipher.Utf8CaesarCipher;
+import org.example.metrics.Counter;
+import org.example.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Шифрование текстовых файлов с учётом кодировки, без декодирования в char там, где можно:
+ * однобайтовые кодировки (Cp1251, KOI8-R) — таблицей на 256 байт через отображение в память,
+ * UTF-8 — {@link Utf8CaesarCipher} прямо по байтам. Выходной файл пишется в кодировке входного.
+ * Шифры для кодировок создаются при первом обращении и переиспользуются.
+ */
+public class TextFileCipher {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final Counter BYTES = Metrics.counter(Metrics.CIPHER_BYTES);
+
+    private final CaesarCipher cipher;
+    private final Utf8CaesarCipher utf8;
+    private final Map<Charset, ByteCaesarCipher> byteCiphers = new ConcurrentHashMap<>();
+    private final Map<Charset, ParallelFileCipher> parallel = new ConcurrentHashMap<>();
+
+    public TextFileCipher(CaesarCipher cipher) {
+        this.cipher = cipher;
+        this.utf8 = new Utf8CaesarCipher(cipher);
+    }
+
+    public Alphabet alphabet() {
+        return cipher.alphabet();
+    }
+
+    // Табличный шифр для однобайтовой кодировки, null — для многобайтовой
+    public ByteCaesarCipher byteCipher(Charset charset) {
+        if (!ByteCaesarCipher.isSingleByte(charset)) {
+            return null;
+        }
+        return byteCiphers.computeIfAbsent(charset, cs -> new ByteCaesarCipher(cs, cipher));
+    }
+
+    // Как byteCipher(charset), но заранее проверяет, что алфавит представим в кодировке
+    public ByteCaesarCipher byteCipher(Charset charset, int key, boolean decrypt) throws IOException {
+        ByteCaesarCipher bytes = byteCipher(charset);
+        if (bytes != null) {
+            bytes.requireRepresentable(key, decrypt);
+        }
+        return bytes;
+    }
+
+    Utf8CaesarCipher utf8() {
+        return utf8;
+    }
+
+    public ParallelFileCipher parallel(Charset charset) {
+        ByteCaesarCipher bytes = byteCipher(charset);
+        return bytes == null ? null : parallel.computeIfAbsent(charset, cs -> new ParallelFileCipher(bytes));
+    }
+
+    // Возвращает кодировку, в которой обработан файл
+    public Charset transform(Path input, Path output, int key, boolean decrypt) throws IOException {
+        return transform(input, output, key, decrypt, done -> { });
+    }
+
+    // progress получает число обработанных байт (символов для прочих кодировок)
+    public Charset transform(Path input, Path output, int key, boolean decrypt, LongConsumer progress)
+            throws IOException {
+        Charset charset = FileManager.charsetFor(input);
+        ByteCaesarCipher bytes = byteCipher(charset, key, decrypt);
+        if (bytes != null) {
+            try (FileChannel in = FileManager.newReadChannel(input);
+                 FileChannel out = FileManager.newWriteChannel(output)) {
+                bytes.transformChannel(in, out, key, decrypt, progress);
+            }
+        } else if (charset.equals(FileManager.UTF_8)) {
+            try (FileChannel in = FileManager.newReadChannel(input);
+                 FileChannel out = FileManager.newWriteChannel(output)) {
+                BYTES.add(utf8.transformChannel(in, out, key, decrypt, progress));
+            }
+        } else {
+            try (Reader r = FileManager.newReader(input, charset);
+                 Writer w = FileManager.newWriter(output, charset)) {
+                cipher.transformBlocks(r, w, key, decrypt, progress);
+            }
+        }
+        return charset;
+    }
+
+    // Потоковый вариант для stdin/stdout, где кодировку по файлу не определить
+    public void transform(ReadableByteChannel in, WritableByteChannel out, Charset charset, int key, boolean decrypt)
+            throws IOException {
+        ByteCaesarCipher bytes = byteCipher(charset, key, decrypt);
+        if (bytes != null) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (in.read(buf) != -1) {
+                buf.flip();
+                BYTES.add(buf.remaining());
+                bytes.transform(buf.duplicate(), buf, key, decrypt);
+                buf.flip();
+                while (buf.hasRemaining()) {
+                    out.write(buf);
+                }
+                buf.clear();
+            }
+        } else if (charset.equals(FileManager.UTF_8)) {
+            BYTES.add(utf8.transformChannel(in, out, key, decrypt, done -> { }));
+        } else {
+            Writer w = Channels.newWriter(out, charset.newEncoder(), -1);
+            cipher.transformBlocks(Channels.newReader(in, charset.newDecoder(), -1), w, key, decrypt);
+        }
+    }
+}
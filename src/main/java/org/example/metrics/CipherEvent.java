@@ -0,0 +1,30 @@
+package org.example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR-событие на одну операцию шифрования файла или потока; длительность — время операции
+@Name("org.example.Cipher")
+@Label("Caesar Cipher")
+@Category("Caesar")
+public final class CipherEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Alphabet")
+    public String alphabet;
+
+    @Label("Key")
+    public int key;
+
+    @Label("Decrypt")
+    public boolean decrypt;
+
+    @Label("Amount")
+    @DataAmount
+    public long amount;
+}
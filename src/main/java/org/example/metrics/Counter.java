@@ -0,0 +1,26 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчик на полосатом {@link LongAdder}: потоки не конкурируют за одну ячейку.
+ * Прибавлять следует блоками, а не посимвольно.
+ */
+public final class Counter {
+
+    private final LongAdder adder = new LongAdder();
+
+    Counter() { }
+
+    public void add(long delta) {
+        adder.add(delta);
+    }
+
+    public void increment() {
+        adder.increment();
+    }
+
+    public long sum() {
+        return adder.sum();
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// JFR-событие на один взлом: найденный ключ и время фаз чтения, оценки и записи
+@Name("org.example.Crack")
+@Label("Caesar Crack")
+@Category("Caesar")
+public final class CrackEvent extends Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Key")
+    public int key;
+
+    @Label("Score")
+    public double score;
+
+    @Label("Characters")
+    public long chars;
+
+    @Label("Outside Alphabet")
+    public long outside;
+
+    @Label("Read Time")
+    @Timespan
+    public long readNanos;
+
+    @Label("Score Time")
+    @Timespan
+    public long scoreNanos;
+
+    @Label("Write Time")
+    @Timespan
+    public long writeNanos;
+}
@@ -0,0 +1,5 @@
+package org.example.metrics;
+
+// Сводка гистограммы задержек; все времена в миллисекундах
+public record HistogramSnapshot(long count, double meanMillis, double p50Millis, double p99Millis, double maxMillis) {
+}
@@ -0,0 +1,62 @@
+package org.example.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Публикует метрики как MXBean org.example:type=Metrics. JMX опрашивает значения сам,
+ * поэтому export только регистрирует бин; повторные вызовы ничего не делают.
+ */
+public final class JmxExporter implements MetricsExporter, MetricsMXBean {
+
+    public static final String OBJECT_NAME = "org.example:type=Metrics";
+
+    @Override
+    public void export(MetricsSnapshot snapshot) throws IOException {
+        register();
+    }
+
+    public synchronized void register() throws IOException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException ex) {
+            throw new IOException("Не удалось зарегистрировать " + OBJECT_NAME + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        return Metrics.snapshot().counters();
+    }
+
+    @Override
+    public Map<String, Double> getP50Millis() {
+        return histogramValues(HistogramSnapshot::p50Millis);
+    }
+
+    @Override
+    public Map<String, Double> getP99Millis() {
+        return histogramValues(HistogramSnapshot::p99Millis);
+    }
+
+    @Override
+    public double getOutsideAlphabetRatio() {
+        return Metrics.snapshot().outsideAlphabetRatio();
+    }
+
+    private static Map<String, Double> histogramValues(ToDoubleFunction<HistogramSnapshot> field) {
+        Map<String, Double> values = new TreeMap<>();
+        Metrics.snapshot().histograms().forEach((name, h) -> values.put(name, field.applyAsDouble(h)));
+        return values;
+    }
+}
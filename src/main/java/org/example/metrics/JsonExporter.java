@@ -0,0 +1,48 @@
+package org.example.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+
+// Записывает снимок в JSON-файл целиком, перезаписывая прежнее содержимое
+public final class JsonExporter implements MetricsExporter {
+
+    private final Path file;
+
+    public JsonExporter(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void export(MetricsSnapshot snapshot) throws IOException {
+        Files.writeString(file, format(snapshot), StandardCharsets.UTF_8);
+    }
+
+    public static String format(MetricsSnapshot snapshot) {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("{\n  \"taken\": \"").append(snapshot.taken()).append("\",\n");
+        sb.append("  \"counters\": {");
+        String sep = "\n";
+        for (Map.Entry<String, Long> e : snapshot.counters().entrySet()) {
+            sb.append(sep).append("    \"").append(e.getKey()).append("\": ").append(e.getValue());
+            sep = ",\n";
+        }
+        sb.append("\n  },\n");
+        sb.append(String.format(Locale.ROOT, "  \"crack.outside.ratio\": %.6f,%n", snapshot.outsideAlphabetRatio()));
+        sb.append("  \"histograms\": {");
+        sep = "\n";
+        for (Map.Entry<String, HistogramSnapshot> e : snapshot.histograms().entrySet()) {
+            HistogramSnapshot h = e.getValue();
+            sb.append(sep).append("    \"").append(e.getKey()).append("\": ");
+            sb.append(String.format(Locale.ROOT,
+                    "{\"count\": %d, \"meanMs\": %.6f, \"p50Ms\": %.6f, \"p99Ms\": %.6f, \"maxMs\": %.6f}",
+                    h.count(), h.meanMillis(), h.p50Millis(), h.p99Millis(), h.maxMillis()));
+            sep = ",\n";
+        }
+        sb.append("\n  }\n}\n");
+        return sb.toString();
+    }
+}
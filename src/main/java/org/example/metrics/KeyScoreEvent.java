@@ -0,0 +1,32 @@
+package org.example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Оценка одного ключа при взломе; пишется только при включённой записи JFR
+@Name("org.example.KeyScore")
+@Label("Caesar Key Score")
+@Category("Caesar")
+public final class KeyScoreEvent extends Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Key")
+    public int key;
+
+    @Label("Score")
+    public double score;
+
+    public static void emit(String method, int key, double score) {
+        KeyScoreEvent event = new KeyScoreEvent();
+        if (event.shouldCommit()) {
+            event.method = method;
+            event.key = key;
+            event.score = score;
+            event.commit();
+        }
+    }
+}
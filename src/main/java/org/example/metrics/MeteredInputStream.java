@@ -0,0 +1,34 @@
+package org.example.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Считает прочитанные байты и время ожидания в read; замер — на вызов, а не на байт
+public final class MeteredInputStream extends FilterInputStream {
+
+    private static final Counter BYTES = Metrics.counter(Metrics.IO_READ_BYTES);
+    private static final Counter NANOS = Metrics.counter(Metrics.IO_READ_NANOS);
+
+    public MeteredInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        long t0 = System.nanoTime();
+        int b = in.read();
+        NANOS.add(System.nanoTime() - t0);
+        if (b >= 0) BYTES.increment();
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        long t0 = System.nanoTime();
+        int n = in.read(b, off, len);
+        NANOS.add(System.nanoTime() - t0);
+        if (n > 0) BYTES.add(n);
+        return n;
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Считает записанные байты и время ожидания в write; блочная запись не дробится по байтам
+public final class MeteredOutputStream extends FilterOutputStream {
+
+    private static final Counter BYTES = Metrics.counter(Metrics.IO_WRITE_BYTES);
+    private static final Counter NANOS = Metrics.counter(Metrics.IO_WRITE_NANOS);
+
+    public MeteredOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        long t0 = System.nanoTime();
+        out.write(b);
+        NANOS.add(System.nanoTime() - t0);
+        BYTES.increment();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        long t0 = System.nanoTime();
+        out.write(b, off, len);
+        NANOS.add(System.nanoTime() - t0);
+        BYTES.add(len);
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.metrics;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр метрик процесса. Счётчики и гистограммы создаются по имени один раз и хранятся
+ * вызывающим кодом в статических полях, поэтому горячий путь не обращается к реестру.
+ * Обновления делаются поблочно (блок, регион, фаза), а не на каждый символ.
+ */
+public final class Metrics {
+
+    public static final String CIPHER_CHARS = "cipher.chars";
+    public static final String CIPHER_BYTES = "cipher.bytes";
+    public static final String CRACK_CHARS = "crack.chars";
+    public static final String CRACK_CHARS_OUTSIDE = "crack.chars.outside";
+    public static final String IO_READ_BYTES = "io.read.bytes";
+    public static final String IO_READ_NANOS = "io.read.nanos";
+    public static final String IO_WRITE_BYTES = "io.write.bytes";
+    public static final String IO_WRITE_NANOS = "io.write.nanos";
+
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private Metrics() { }
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    public static MetricsSnapshot snapshot() {
+        Map<String, Long> counters = new TreeMap<>();
+        COUNTERS.forEach((name, c) -> counters.put(name, c.sum()));
+        Map<String, HistogramSnapshot> histograms = new TreeMap<>();
+        HISTOGRAMS.forEach((name, h) -> histograms.put(name, h.snapshot()));
+        return new MetricsSnapshot(Instant.now(), counters, histograms);
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.metrics;
+
+import java.io.IOException;
+
+// Способ выгрузки метрик: текстом в консоль, JSON-файлом или через JMX
+public interface MetricsExporter {
+
+    void export(MetricsSnapshot snapshot) throws IOException;
+
+    default void export() throws IOException {
+        export(Metrics.snapshot());
+    }
+}
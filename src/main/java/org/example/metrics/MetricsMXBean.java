@@ -0,0 +1,15 @@
+package org.example.metrics;
+
+import java.util.Map;
+
+// Вид метрик в JMX (jconsole, VisualVM); значения читаются в момент запроса
+public interface MetricsMXBean {
+
+    Map<String, Long> getCounters();
+
+    Map<String, Double> getP50Millis();
+
+    Map<String, Double> getP99Millis();
+
+    double getOutsideAlphabetRatio();
+}
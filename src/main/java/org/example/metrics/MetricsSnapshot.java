@@ -0,0 +1,15 @@
+package org.example.metrics;
+
+import java.time.Instant;
+import java.util.Map;
+
+// Значения всех метрик на момент taken; карты отсортированы по имени
+public record MetricsSnapshot(Instant taken, Map<String, Long> counters, Map<String, HistogramSnapshot> histograms) {
+
+    // Доля символов вне алфавита среди прочитанных взломщиками, 0 — если ничего не читалось
+    public double outsideAlphabetRatio() {
+        long total = counters.getOrDefault(Metrics.CRACK_CHARS, 0L);
+        long outside = counters.getOrDefault(Metrics.CRACK_CHARS_OUTSIDE, 0L);
+        return total == 0 ? 0 : (double) outside / total;
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.metrics;
+
+import java.io.PrintStream;
+
+// Человекочитаемая сводка: счётчики, затем гистограммы с перцентилями
+public final class TextExporter implements MetricsExporter {
+
+    private final PrintStream out;
+
+    public TextExporter(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void export(MetricsSnapshot snapshot) {
+        out.println("Метрики на " + snapshot.taken());
+        snapshot.counters().forEach((name, value) -> out.printf("  %-24s %,d%n", name, value));
+        out.printf("  %-24s %.4f%n", "crack.outside.ratio", snapshot.outsideAlphabetRatio());
+        snapshot.histograms().forEach((name, h) -> out.printf(
+                "  %-24s n=%d  среднее %.3f мс  p50 %.3f мс  p99 %.3f мс  макс %.3f мс%n",
+                name, h.count(), h.meanMillis(), h.p50Millis(), h.p99Millis(), h.maxMillis()));
+        out.flush();
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.search;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Автомат Ахо — Корасик над байтами: полная таблица переходов states·256, так что на каждый байт
+ * приходится одно чтение из массива без откатов по суффиксным ссылкам.
+ * Запросы короткие, поэтому даже для 40 ключей таблица занимает десятки килобайт.
+ */
+final class AhoCorasick {
+
+    static final int START = 0;
+
+    private final int[] next;
+    // Номера образцов, которые заканчиваются в состоянии (с учётом суффиксных ссылок)
+    private final int[][] matches;
+    private final int[] lengths;
+
+    AhoCorasick(byte[][] patterns) {
+        int maxStates = 1;
+        for (byte[] p : patterns) {
+            if (p.length == 0) throw new IllegalArgumentException("Пустой образец");
+            maxStates += p.length;
+        }
+        int[] trie = new int[maxStates * 256];
+        Arrays.fill(trie, -1);
+        int[][] out = new int[maxStates][];
+        int states = 1;
+        lengths = new int[patterns.length];
+        for (int id = 0; id < patterns.length; id++) {
+            int s = START;
+            for (byte b : patterns[id]) {
+                int t = s * 256 + (b & 0xFF);
+                if (trie[t] < 0) trie[t] = states++;
+                s = trie[t];
+            }
+            out[s] = append(out[s], id);
+            lengths[id] = patterns[id].length;
+        }
+
+        // Обход в ширину: недостающие переходы берутся у состояния суффиксной ссылки
+        int[] fail = new int[states];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int b = 0; b < 256; b++) {
+            int t = trie[b];
+            if (t < 0) {
+                trie[b] = START;
+            } else {
+                fail[t] = START;
+                queue.add(t);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            if (out[fail[s]] != null) {
+                for (int id : out[fail[s]]) out[s] = append(out[s], id);
+            }
+            for (int b = 0; b < 256; b++) {
+                int t = trie[s * 256 + b];
+                int viaFail = trie[fail[s] * 256 + b];
+                if (t < 0) {
+                    trie[s * 256 + b] = viaFail;
+                } else {
+                    fail[t] = viaFail;
+                    queue.add(t);
+                }
+            }
+        }
+        this.next = Arrays.copyOf(trie, states * 256);
+        this.matches = Arrays.copyOf(out, states);
+    }
+
+    int next(int state, byte b) {
+        return next[state * 256 + (b & 0xFF)];
+    }
+
+    // null, если в состоянии не заканчивается ни один образец
+    int[] matches(int state) {
+        return matches[state];
+    }
+
+    int length(int pattern) {
+        return lengths[pattern];
+    }
+
+    private static int[] append(int[] ids, int id) {
+        if (ids == null) return new int[]{id};
+        int[] grown = Arrays.copyOf(ids, ids.length + 1);
+        grown[ids.length] = id;
+        return grown;
+    }
+}
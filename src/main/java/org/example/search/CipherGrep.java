@@ -0,0 +1,303 @@
+package org.example.search;
+
+import org.example.cipher.Alphabet;
+import org.example.cipher.ByteCaesarCipher;
+import org.example.cipher.CaesarCipher;
+import org.example.io.FileManager;
+import org.example.metrics.Counter;
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Поиск фразы в зашифрованных файлах без расшифровки. Шифр Цезаря заменяет символы один к одному,
+ * поэтому запрос шифруется ключом файла, кодируется в кодировке файла и ищется прямо в байтах шифртекста.
+ * <p>
+ * С известным ключом образец один, файл просматривается алгоритмом Хорспула с пропусками.
+ * Без ключа все N зашифрованных вариантов запроса ищутся за один проход автоматом Ахо — Корасик.
+ * Файлы отображаются в память регионами по {@link ByteCaesarCipher#MAP_REGION}; расшифровывается только
+ * контекст вокруг найденных совпадений. Несколько файлов просматриваются параллельно.
+ */
+public class CipherGrep {
+
+    public static final int ALL_KEYS = -1;
+
+    private static final Counter BYTES = Metrics.counter("grep.bytes");
+    private static final Counter HITS = Metrics.counter("grep.hits");
+    private static final LatencyHistogram FILE_TIME = Metrics.histogram("grep.file");
+
+    private final CaesarCipher cipher;
+    private final String query;
+    private final int key;
+    private final int context;
+    // Образцы зависят от кодировки файла: строятся один раз на кодировку
+    private final Map<Charset, Patterns> patterns = new ConcurrentHashMap<>();
+
+    // key — ключ или ALL_KEYS; context — сколько байт контекста расшифровать с каждой стороны, 0 — без контекста
+    public CipherGrep(Alphabet alphabet, String query, int key, int context) {
+        if (query.isEmpty()) {
+            throw new IllegalArgumentException("Пустой запрос");
+        }
+        if (key != ALL_KEYS && (key < 0 || key >= alphabet.length())) {
+            throw new IllegalArgumentException("Ключ вне диапазона 0.." + (alphabet.length() - 1) + ": " + key);
+        }
+        if (context < 0) {
+            throw new IllegalArgumentException("Размер контекста не может быть отрицательным: " + context);
+        }
+        this.cipher = new CaesarCipher(alphabet);
+        this.query = query;
+        this.key = key;
+        this.context = context;
+    }
+
+    // Совпадения в порядке смещений; charset == null — кодировка определяется по файлу
+    public List<SearchHit> search(Path file, Charset charset) throws IOException {
+        List<SearchHit> hits = new ArrayList<>();
+        search(file, charset, hits::add);
+        return hits;
+    }
+
+    public long search(Path file, Charset charset, Consumer<SearchHit> sink) throws IOException {
+        long t0 = System.nanoTime();
+        Charset cs = charset != null ? charset : FileManager.charsetFor(file);
+        Patterns p = patterns(cs);
+        long found = 0;
+        try (FileChannel ch = FileManager.newReadChannel(file)) {
+            long size = ch.size();
+            if (p.single != null) {
+                found = horspool(ch, size, p.single, hit -> sink.accept(hit(ch, file, cs, hit, p.single.length, key)));
+            } else {
+                found = scanAll(ch, size, p, file, cs, sink);
+            }
+            BYTES.add(size);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            FILE_TIME.recordSince(t0);
+        }
+        HITS.add(found);
+        return found;
+    }
+
+    // Файлы просматриваются параллельно; sink вызывается из рабочих потоков и должен быть потокобезопасен.
+    // Ошибка в одном файле не останавливает остальные, её получает onError
+    public long search(List<Path> files, Charset charset, int threads, Consumer<SearchHit> sink,
+                       Consumer<IOException> onError) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<CompletableFuture<Long>> parts = new ArrayList<>(files.size());
+            for (Path file : files) {
+                parts.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return search(file, charset, sink);
+                    } catch (IOException ex) {
+                        onError.accept(new IOException(file + ": " + ex.getMessage(), ex));
+                        return 0L;
+                    }
+                }, pool));
+            }
+            long total = 0;
+            for (CompletableFuture<Long> part : parts) {
+                total += part.join();
+            }
+            return total;
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @FunctionalInterface
+    private interface OffsetSink {
+        void accept(long offset);
+    }
+
+    // Хорспул по отображённым регионам; соседние регионы перекрываются на длину образца минус один байт
+    private static long horspool(FileChannel ch, long size, byte[] pattern, OffsetSink sink) throws IOException {
+        int m = pattern.length;
+        int[] shift = new int[256];
+        Arrays.fill(shift, m);
+        for (int i = 0; i < m - 1; i++) {
+            shift[pattern[i] & 0xFF] = m - 1 - i;
+        }
+        byte last = pattern[m - 1];
+        long found = 0;
+        for (long pos = 0; pos + m <= size; ) {
+            int len = (int) Math.min(ByteCaesarCipher.MAP_REGION, size - pos);
+            MappedByteBuffer region = ch.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            int i = 0;
+            while (i + m <= len) {
+                byte b = region.get(i + m - 1);
+                if (b == last && matchesAt(region, i, pattern)) {
+                    sink.accept(pos + i);
+                    found++;
+                }
+                i += shift[b & 0xFF];
+            }
+            if (pos + len >= size) break;
+            pos += len - (m - 1);
+        }
+        return found;
+    }
+
+    private static boolean matchesAt(ByteBuffer buf, int at, byte[] pattern) {
+        for (int j = pattern.length - 2; j >= 0; j--) {
+            if (buf.get(at + j) != pattern[j]) return false;
+        }
+        return true;
+    }
+
+    // Ахо — Корасик: состояние автомата переходит через границы регионов, перекрытие не нужно
+    private long scanAll(FileChannel ch, long size, Patterns p, Path file, Charset cs, Consumer<SearchHit> sink)
+            throws IOException {
+        AhoCorasick ac = p.automaton;
+        int state = AhoCorasick.START;
+        long found = 0;
+        for (long pos = 0; pos < size; pos += ByteCaesarCipher.MAP_REGION) {
+            int len = (int) Math.min(ByteCaesarCipher.MAP_REGION, size - pos);
+            MappedByteBuffer region = ch.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            for (int i = 0; i < len; i++) {
+                state = ac.next(state, region.get(i));
+                int[] ids = ac.matches(state);
+                if (ids == null) continue;
+                for (int id : ids) {
+                    int length = ac.length(id);
+                    long start = pos + i + 1 - length;
+                    for (int k : p.keys[id]) {
+                        sink.accept(hit(ch, file, cs, start, length, k));
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private SearchHit hit(FileChannel ch, Path file, Charset cs, long offset, int length, int hitKey) {
+        if (context == 0) {
+            return new SearchHit(file, offset, hitKey, null);
+        }
+        try {
+            return new SearchHit(file, offset, hitKey, decryptContext(ch, cs, offset, length, hitKey));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // Окно [offset - context, offset + length + context) выравнивается по границам символов UTF-8
+    private String decryptContext(FileChannel ch, Charset cs, long offset, int length, int hitKey) throws IOException {
+        long from = Math.max(0, offset - context);
+        long to = Math.min(ch.size(), offset + length + context);
+        ByteBuffer window = ByteBuffer.allocate((int) (to - from));
+        while (window.hasRemaining() && ch.read(window, from + window.position()) >= 0) {
+            // позиционное чтение не сдвигает общий указатель канала
+        }
+        window.flip();
+        if (cs.equals(StandardCharsets.UTF_8)) {
+            alignUtf8(window);
+        }
+        CharBuffer chars = cs.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(window);
+        char[] plain = new char[chars.remaining()];
+        cipher.transform(chars.array(), chars.arrayOffset() + chars.position(), plain.length, plain, 0, hitKey, true);
+        for (int i = 0; i < plain.length; i++) {
+            if (plain[i] == '\n' || plain[i] == '\r' || plain[i] == '\t') plain[i] = ' ';
+        }
+        return new String(plain);
+    }
+
+    // Начало — на первом ведущем байте, конец — перед неполной последней последовательностью
+    private static void alignUtf8(ByteBuffer window) {
+        int start = window.position();
+        while (start < window.limit() && (window.get(start) & 0xC0) == 0x80) start++;
+        int end = window.limit();
+        int lead = end - 1;
+        while (lead >= start && (window.get(lead) & 0xC0) == 0x80) lead--;
+        if (lead >= start) {
+            int b = window.get(lead) & 0xFF;
+            int need = b < 0x80 ? 1 : b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : 2;
+            if (end - lead < need) end = lead;
+        }
+        window.limit(end).position(start);
+    }
+
+    private Patterns patterns(Charset cs) throws IOException {
+        Patterns p = patterns.get(cs);
+        if (p == null) {
+            p = buildPatterns(cs);
+            patterns.putIfAbsent(cs, p);
+        }
+        return p;
+    }
+
+    // Одинаковые варианты (запрос без символов алфавита) объединяются: образцу соответствует список ключей
+    private Patterns buildPatterns(Charset cs) throws IOException {
+        char[] source = query.toCharArray();
+        char[] encrypted = new char[source.length];
+        if (key != ALL_KEYS) {
+            cipher.transform(source, 0, source.length, encrypted, 0, key, false);
+            return new Patterns(encode(encrypted, cs), null, null);
+        }
+        Map<String, List<Integer>> variants = new LinkedHashMap<>();
+        int n = cipher.alphabet().length();
+        for (int k = 0; k < n; k++) {
+            cipher.transform(source, 0, source.length, encrypted, 0, k, false);
+            byte[] bytes = encode(encrypted, cs);
+            variants.computeIfAbsent(new String(bytes, StandardCharsets.ISO_8859_1), b -> new ArrayList<>()).add(k);
+        }
+        byte[][] unique = new byte[variants.size()][];
+        int[][] keys = new int[variants.size()][];
+        int id = 0;
+        for (Map.Entry<String, List<Integer>> e : variants.entrySet()) {
+            unique[id] = e.getKey().getBytes(StandardCharsets.ISO_8859_1);
+            keys[id++] = e.getValue().stream().mapToInt(Integer::intValue).toArray();
+        }
+        return new Patterns(null, new AhoCorasick(unique), keys);
+    }
+
+    private byte[] encode(char[] chars, Charset cs) throws IOException {
+        try {
+            ByteBuffer bytes = cs.newEncoder().encode(CharBuffer.wrap(chars));
+            return Arrays.copyOf(bytes.array(), bytes.limit());
+        } catch (CharacterCodingException ex) {
+            throw new IOException("Запрос нельзя записать в кодировке " + cs.name() + ": " + query, ex);
+        }
+    }
+
+    private static final class Patterns {
+        final byte[] single;
+        final AhoCorasick automaton;
+        final int[][] keys;
+
+        Patterns(byte[] single, AhoCorasick automaton, int[][] keys) {
+            this.single = single;
+            this.automaton = automaton;
+            this.keys = keys;
+        }
+    }
+}
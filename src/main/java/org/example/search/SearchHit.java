@@ -0,0 +1,9 @@
+package org.example.search;
+
+import java.nio.file.Path;
+
+/**
+ * Совпадение в шифртексте: байтовое смещение начала в файле, ключ, при котором запрос совпал,
+ * и расшифрованный контекст вокруг совпадения (null, если контекст не запрашивался).
+ */
+public record SearchHit(Path file, long offset, int key, String context) { }
@@ -0,0 +1,320 @@
+package org.example.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.cipher.Alphabet;
+import org.example.cipher.CaesarCipher;
+import org.example.crack.BruteForceCracker;
+import org.example.crack.LanguageProfile;
+import org.example.crack.LanguageProfileCache;
+import org.example.crack.StatAnalyzerCracker;
+import org.example.crack.StatCrackResult;
+import org.example.io.FileManager;
+import org.example.io.TextFileCipher;
+import org.example.metrics.Counter;
+import org.example.metrics.JsonExporter;
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.Metrics;
+import org.example.validation.Validator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Локальный HTTP-сервис шифра: JVM запускается один раз, таблицы подстановки, взломщики и языковые профили
+ * остаются в памяти между запросами. Слушает только loopback.
+ * <pre>
+ *   POST /encrypt?key=N[&amp;alphabet=ID][&amp;charset=CS]   тело — текст, ответ — шифртекст
+ *   POST /decrypt?key=N[&amp;alphabet=ID][&amp;charset=CS]
+ *   POST /brute[?alphabet=ID]                          ответ — как у Brute Force, ключ в X-Caesar-Key
+ *   POST /stat[?sample=FILE][&amp;alphabet=ID]             ключ в X-Caesar-Key, χ² в X-Caesar-Chi2
+ *   GET  /metrics                                     метрики в JSON
+ * </pre>
+ * Кодировка тела — из charset, иначе из Content-Type, иначе кодировка по умолчанию.
+ * Шифрование идёт потоком из тела запроса в ответ chunked-блоками, без буферизации всего тела.
+ * Взломщикам нужно два прохода, поэтому тело для них сохраняется во временный файл.
+ * Соединения принимает и держит селектор HttpServer, так что простаивающие keep-alive соединения
+ * потоков не занимают; запросы выполняются на ограниченном пуле.
+ */
+public class CipherServer {
+
+    public static final int DEFAULT_PORT = 8765;
+
+    private static final Counter REQUESTS = Metrics.counter("server.requests");
+    private static final Counter ERRORS = Metrics.counter("server.errors");
+    private static final LatencyHistogram LATENCY = Metrics.histogram("server.request");
+
+    static {
+        // Ответы идут chunked-блоками: с алгоритмом Нейгла последний блок ждёт отложенного ACK клиента (~40 мс).
+        // Настройку читает реализация HttpServer при загрузке, поэтому задаём её до создания сервера
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Path defaultSample;
+    // Состояние по алфавитам живёт всё время работы сервиса
+    private final Map<String, Engines> engines = new ConcurrentHashMap<>();
+
+    public CipherServer(int port, int threads, Path defaultSample) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.defaultSample = defaultSample;
+        server.setExecutor(executor);
+        server.createContext("/encrypt", ex -> handle(ex, () -> transform(ex, false)));
+        server.createContext("/decrypt", ex -> handle(ex, () -> transform(ex, true)));
+        server.createContext("/brute", ex -> handle(ex, () -> brute(ex)));
+        server.createContext("/stat", ex -> handle(ex, () -> stat(ex)));
+        server.createContext("/metrics", ex -> handle(ex, () -> metrics(ex)));
+    }
+
+    // Прогревает профиль по умолчанию, чтобы первый /stat не платил за его сборку
+    public void start() throws IOException {
+        if (defaultSample != null) {
+            engines(Alphabet.RUSSIAN).profiles.get(defaultSample);
+        }
+        server.start();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void run() throws IOException;
+    }
+
+    private static final class BadRequest extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        BadRequest(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private static final class Engines {
+        final Alphabet alphabet;
+        final TextFileCipher files;
+        final BruteForceCracker brute;
+        final StatAnalyzerCracker stat;
+        final LanguageProfileCache profiles;
+        final Validator validator;
+
+        Engines(Alphabet alphabet) {
+            this.alphabet = alphabet;
+            this.files = new TextFileCipher(new CaesarCipher(alphabet));
+            this.brute = new BruteForceCracker(alphabet);
+            this.stat = new StatAnalyzerCracker(alphabet);
+            this.profiles = new LanguageProfileCache(alphabet);
+            this.validator = new Validator(alphabet);
+        }
+    }
+
+    private void handle(HttpExchange ex, Handler handler) throws IOException {
+        long t0 = System.nanoTime();
+        REQUESTS.increment();
+        try {
+            handler.run();
+            ex.close();
+        } catch (IOException | RuntimeException e) {
+            ERRORS.increment();
+            if (ex.getResponseCode() >= 0) {
+                // ответ уже начат: закрытие обмена дописало бы завершающий блок, и клиент принял бы
+                // обрезанный ответ за целый. Исключение из обработчика заставляет HttpServer оборвать соединение
+                throw e;
+            }
+            int status = e instanceof BadRequest ? ((BadRequest) e).status : 500;
+            try {
+                sendError(ex, status, String.valueOf(e.getMessage()));
+            } catch (IOException ignored) {
+                // клиент ушёл, отвечать некому
+            }
+            ex.close();
+        } finally {
+            LATENCY.recordSince(t0);
+        }
+    }
+
+    private void transform(HttpExchange ex, boolean decrypt) throws IOException {
+        requireMethod(ex, "POST");
+        Map<String, String> query = query(ex);
+        Engines e = engines(alphabet(query));
+        int key = parseKey(query.get("key"));
+        e.validator.ensureKeyInRange(key);
+        Charset charset = charset(ex, query);
+        try {
+            // несовместимость алфавита с кодировкой выясняется до заголовков, пока ещё можно ответить 400
+            e.files.byteCipher(charset, key, decrypt);
+        } catch (IOException bad) {
+            throw new BadRequest(400, bad.getMessage());
+        }
+
+        ex.getResponseHeaders().set("Content-Type", "text/plain; charset=" + charset.name());
+        ex.sendResponseHeaders(200, 0);
+        // поток ответа закрывается только после успеха: при ошибке handle обрывает соединение
+        OutputStream out = ex.getResponseBody();
+        try (InputStream body = ex.getRequestBody()) {
+            e.files.transform(Channels.newChannel(body), Channels.newChannel(out), charset, key, decrypt);
+        }
+        out.close();
+    }
+
+    private void brute(HttpExchange ex) throws IOException {
+        requireMethod(ex, "POST");
+        Engines e = engines(alphabet(query(ex)));
+        crack(ex, (in, out) -> {
+            int key = e.brute.crackByBruteForce(e.validator.ensureFileReadable(in), e.validator.ensureParentWritable(out));
+            ex.getResponseHeaders().set("X-Caesar-Key", Integer.toString(key));
+        });
+    }
+
+    private void stat(HttpExchange ex) throws IOException {
+        requireMethod(ex, "POST");
+        Map<String, String> query = query(ex);
+        Engines e = engines(alphabet(query));
+        Path sample = query.containsKey("sample") ? Paths.get(query.get("sample")) : defaultSample;
+        if (sample == null) {
+            throw new BadRequest(400, "Не задан образец: ?sample=FILE или --sample при запуске");
+        }
+        LanguageProfile profile = e.profiles.get(e.validator.ensureFileReadable(sample).path());
+        crack(ex, (in, out) -> {
+            StatCrackResult result = e.stat.crackByStatAnalysis(e.validator.ensureFileReadable(in), profile,
+                    e.validator.ensureParentWritable(out));
+            ex.getResponseHeaders().set("X-Caesar-Key", Integer.toString(result.key()));
+            ex.getResponseHeaders().set("X-Caesar-Chi2", String.format(Locale.ROOT, "%.6f", result.chiSquared()));
+        });
+    }
+
+    @FunctionalInterface
+    private interface CrackTask {
+        void run(Path input, Path output) throws IOException;
+    }
+
+    // Тело запроса — во временный файл, результат взлома — потоком из временного файла
+    private static void crack(HttpExchange ex, CrackTask task) throws IOException {
+        Path in = Files.createTempFile("caesar-srv-in", ".txt");
+        Path out = Files.createTempFile("caesar-srv-out", ".txt");
+        try {
+            try (InputStream body = ex.getRequestBody()) {
+                Files.copy(body, in, StandardCopyOption.REPLACE_EXISTING);
+            }
+            task.run(in, out);
+            ex.getResponseHeaders().set("Content-Type", "text/plain; charset=" + FileManager.charsetFor(out).name());
+            ex.sendResponseHeaders(200, Files.size(out));
+            try (OutputStream body = ex.getResponseBody()) {
+                Files.copy(out, body);
+            }
+        } finally {
+            Files.deleteIfExists(in);
+            Files.deleteIfExists(out);
+        }
+    }
+
+    private static void metrics(HttpExchange ex) throws IOException {
+        requireMethod(ex, "GET");
+        byte[] json = JsonExporter.format(Metrics.snapshot()).getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        ex.sendResponseHeaders(200, json.length);
+        try (OutputStream body = ex.getResponseBody()) {
+            body.write(json);
+        }
+    }
+
+    private Engines engines(Alphabet alphabet) {
+        return engines.computeIfAbsent(alphabet.id(), id -> new Engines(alphabet));
+    }
+
+    private static void requireMethod(HttpExchange ex, String method) throws BadRequest {
+        if (!ex.getRequestMethod().equalsIgnoreCase(method)) {
+            ex.getResponseHeaders().set("Allow", method);
+            throw new BadRequest(405, "Ожидался метод " + method);
+        }
+    }
+
+    private static Alphabet alphabet(Map<String, String> query) throws BadRequest {
+        try {
+            return Alphabet.byId(query.getOrDefault("alphabet", Alphabet.RUSSIAN.id()));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequest(400, e.getMessage());
+        }
+    }
+
+    private static int parseKey(String value) throws BadRequest {
+        if (value == null) {
+            throw new BadRequest(400, "Не задан ключ: ?key=N");
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequest(400, "Ключ должен быть числом: " + value);
+        }
+    }
+
+    private static Charset charset(HttpExchange ex, Map<String, String> query) throws BadRequest {
+        String name = query.get("charset");
+        String contentType = ex.getRequestHeaders().getFirst("Content-Type");
+        if (name == null && contentType != null) {
+            int at = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+            if (at >= 0) {
+                name = contentType.substring(at + "charset=".length()).split(";")[0].trim().replace("\"", "");
+            }
+        }
+        try {
+            return name != null ? FileManager.charset(name) : FileManager.charset();
+        } catch (IllegalArgumentException e) {
+            throw new BadRequest(400, e.getMessage());
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange ex) {
+        Map<String, String> params = new HashMap<>();
+        String raw = ex.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq >= 0 ? pair.substring(0, eq) : pair;
+            String value = eq >= 0 ? pair.substring(eq + 1) : "";
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static void sendError(HttpExchange ex, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
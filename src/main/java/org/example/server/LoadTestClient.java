@@ -0,0 +1,114 @@
+package org.example.server;
+
+import org.example.metrics.HistogramSnapshot;
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Нагрузочный клиент для {@link CipherServer}: concurrency потоков отправляют requests одинаковых
+ * запросов из size символов текста. Задержки попадают в гистограмму loadtest.request,
+ * итог — перцентили, запросы в секунду и МБ/с по телу запроса.
+ */
+public class LoadTestClient {
+
+    private static final LatencyHistogram LATENCY = Metrics.histogram("loadtest.request");
+
+    private final URI uri;
+    private final int requests;
+    private final int concurrency;
+    private final byte[] payload;
+    private final Charset charset;
+
+    public LoadTestClient(URI uri, int requests, int concurrency, int size, Charset charset) {
+        if (requests <= 0 || concurrency <= 0 || size < 0) {
+            throw new IllegalArgumentException("Число запросов и потоков должно быть положительным");
+        }
+        this.uri = uri;
+        this.requests = requests;
+        this.concurrency = concurrency;
+        this.charset = charset;
+        this.payload = sampleText(size, charset);
+    }
+
+    // Возвращает число неуспешных запросов
+    public long run(PrintStream report) throws IOException {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "text/plain; charset=" + charset.name())
+                .POST(HttpRequest.BodyPublishers.ofByteArray(payload))
+                .build();
+
+        AtomicInteger remaining = new AtomicInteger(requests);
+        AtomicLong failures = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        long t0 = System.nanoTime();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(pool.submit(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) failures.incrementAndGet();
+                        } catch (IOException ex) {
+                            failures.incrementAndGet();
+                        }
+                        LATENCY.recordSince(start);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> w : workers) {
+                w.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Нагрузочный тест прерван");
+        } catch (ExecutionException ex) {
+            throw new IOException(ex.getCause().getMessage(), ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        double seconds = Math.max((System.nanoTime() - t0) / 1e9, 1e-9);
+        HistogramSnapshot latency = LATENCY.snapshot();
+        report.printf("Запросов: %d, ошибок: %d, потоков: %d, тело: %d байт%n",
+                requests, failures.get(), concurrency, payload.length);
+        report.printf("Задержка, мс: среднее %.3f, p50 %.3f, p99 %.3f, max %.3f%n",
+                latency.meanMillis(), latency.p50Millis(), latency.p99Millis(), latency.maxMillis());
+        report.printf("Пропускная способность: %.1f запросов/с, %.2f МБ/с%n",
+                requests / seconds, (double) requests * payload.length / 1048576.0 / seconds);
+        return failures.get();
+    }
+
+    // Псевдотекст из слов алфавита ru длиной size символов — смесь сдвигаемых символов и пробелов
+    private static byte[] sampleText(int size, Charset charset) {
+        String[] words = {"шифр", "цезаря", "сдвигает", "каждую", "букву", "на", "ключ", "позиций,", "текст."};
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(size);
+        while (sb.length() < size) {
+            sb.append(words[random.nextInt(words.length)]).append(' ');
+        }
+        // режем по символам, а не байтам, чтобы не разрезать многобайтовый символ
+        return sb.substring(0, size).getBytes(charset);
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.validation;
+
+import java.nio.file.Path;
+
+/**
+ * Входной файл, уже проверенный {@link Validator#ensureFileReadable}: существует и является обычным файлом.
+ * Создаётся только валидатором, поэтому методы, принимающие его, повторно файловую систему не опрашивают.
+ */
+public final class ValidatedInput {
+
+    private final Path path;
+    private final long size;
+
+    ValidatedInput(Path path, long size) {
+        this.path = path;
+        this.size = size;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    // Размер на момент проверки
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+}
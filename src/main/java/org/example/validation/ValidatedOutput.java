@@ -0,0 +1,25 @@
+package org.example.validation;
+
+import java.nio.file.Path;
+
+/**
+ * Выходной файл, родительская папка которого проверена {@link Validator#ensureParentWritable}.
+ * Создаётся только валидатором.
+ */
+public final class ValidatedOutput {
+
+    private final Path path;
+
+    ValidatedOutput(Path path) {
+        this.path = path;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+}
@@ -1,34 +1,64 @@
 package org.example.validation;
 
 import java.io.IOException;
+import java.nio.file.AccessDeniedException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.example.cipher.Alphabet;
 
+/**
+ * Проверки путей и ключа. На путь — один вызов readAttributes вместо серии exists/isRegularFile/isDirectory;
+ * право чтения входного файла проверяет само открытие: FileManager превращает отказ в «недоступен для чтения». Валидатор из {@link #forBatch()} запоминает
+ * успешно проверенные родительские папки, так что пакет из тысяч файлов в одной папке проверяет её один раз.
+ */
 public class Validator {
     private final int alphabetLength;
+    // null — без кэша; проверенные папки хранятся только на время пакета
+    private final Map<Path, Boolean> checkedParents;
 
 
     public Validator(int alphabetLength) {
+        this(alphabetLength, null);
+    }
+
+    public Validator(Alphabet alphabet) {
+        this(alphabet.length());
+    }
+
+    private Validator(int alphabetLength, Map<Path, Boolean> checkedParents) {
         this.alphabetLength = alphabetLength;
+        this.checkedParents = checkedParents;
+    }
+
+    // Валидатор на один пакет: кэширует проверки родительских папок, после пакета выбрасывается
+    public Validator forBatch() {
+        return new Validator(alphabetLength, new ConcurrentHashMap<>());
     }
 
-    public void ensureFileReadable(Path path) throws IOException {
+    public ValidatedInput ensureFileReadable(Path path) throws IOException {
         if (path == null) {
             throw new IOException("Путь к файлу не задан.");
         }
-        if (!Files.exists(path)) {
-            throw new IOException("Файл не существует: " + path);
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException ex) {
+            throw new IOException("Файл не существует: " + path, ex);
+        } catch (AccessDeniedException ex) {
+            throw new IOException("Файл недоступен для чтения: " + path, ex);
         }
-        if (!Files.isRegularFile(path)) {
+        if (!attrs.isRegularFile()) {
             throw new IOException("Указанный путь не является файлом: " + path);
         }
-        if (!Files.isReadable(path)) {
-            throw new IOException("Файл недоступен для чтения: " + path);
-        }
+        return new ValidatedInput(path, attrs.size());
     }
 
-    public void ensureParentWritable(Path path) throws IOException {
+    public ValidatedOutput ensureParentWritable(Path path) throws IOException {
         if (path == null) {
             throw new IOException("Путь к файлу не задан.");
         }
@@ -36,15 +66,13 @@ public class Validator {
         if (parent == null) {
             throw new IOException("Неверный путь: нет родительской директории для " + path);
         }
-        if (!Files.exists(parent)) {
-            throw new IOException("Родительская папка не существует: " + parent);
-        }
-        if (!Files.isDirectory(parent)) {
-            throw new IOException("Родительский путь не является папкой: " + parent);
-        }
-        if (!Files.isWritable(parent)) {
-            throw new IOException("Нет прав на запись в папку: " + parent);
+        if (checkedParents == null || !checkedParents.containsKey(parent)) {
+            checkDirectoryWritable(parent);
+            if (checkedParents != null) {
+                checkedParents.put(parent, Boolean.TRUE);
+            }
         }
+        return new ValidatedOutput(path);
     }
 
     public void ensureKeyInRange(int key) throws IOException {
@@ -52,4 +80,20 @@ public class Validator {
             throw new IOException("Неверный ключ: " + key + ". Допустимо от 0 до " + (alphabetLength - 1) + ".");
         }
     }
+
+    // Запись проверяем заранее: иначе ошибка всплыла бы только после долгого взлома
+    private static void checkDirectoryWritable(Path dir) throws IOException {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(dir, BasicFileAttributes.class);
+        } catch (NoSuchFileException ex) {
+            throw new IOException("Родительская папка не существует: " + dir, ex);
+        }
+        if (!attrs.isDirectory()) {
+            throw new IOException("Родительский путь не является папкой: " + dir);
+        }
+        if (!Files.isWritable(dir)) {
+            throw new IOException("Нет прав на запись в папку: " + dir);
+        }
+    }
 }
@@ -0,0 +1,85 @@
+package org.example.cipher;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Векторное ядро должно совпадать с табличным путём {@link CaesarCipher} для всех ключей в обе стороны,
+ * на всех векторизуемых алфавитах и на длинах, не кратных ширине вектора (хвост досчитывается таблицей).
+ * Тестам нужен {@code --add-modules jdk.incubator.vector}, его добавляет build.gradle.kts.
+ */
+class VectorCaesarKernelTest {
+
+    private static final Alphabet[] VECTORIZED = {Alphabet.CYRILLIC_LOWER, Alphabet.LATIN_LOWER};
+
+    private static final int[] LENGTHS = {0, 1, 3, 7, 8, 15, 16, 17, 31, 33, 63, 65, 127, 129, 1000, 4099};
+
+    @Test
+    void matchesScalarCipherForEveryKeyAndLength() {
+        VectorKernel kernel = new VectorCaesarKernel();
+        for (Alphabet alphabet : VECTORIZED) {
+            CaesarCipher scalar = new CaesarCipher(alphabet, null);
+            CaesarCipher vector = new CaesarCipher(alphabet, kernel);
+            assertTrue(vector.isVectorized(), alphabet.id());
+            for (int len : LENGTHS) {
+                char[] src = sample(alphabet, len + 5);
+                for (int key = 0; key < alphabet.length(); key++) {
+                    for (boolean decrypt : new boolean[]{false, true}) {
+                        // ненулевые смещения: выравнивание массивов не должно влиять на результат
+                        char[] expected = new char[len + 3];
+                        char[] actual = new char[len + 3];
+                        scalar.transform(src, 5, len, expected, 3, key, decrypt);
+                        vector.transform(src, 5, len, actual, 3, key, decrypt);
+                        assertArrayEquals(expected, actual,
+                                alphabet.id() + ", длина " + len + ", ключ " + key + (decrypt ? ", расшифровка" : ""));
+                    }
+                }
+            }
+        }
+    }
+
+    // Ядро обрабатывает только кратную ширине вектора часть и сообщает, сколько сделано
+    @Test
+    void kernelProcessesWholeVectorsOnly() {
+        VectorKernel kernel = new VectorCaesarKernel();
+        Alphabet alphabet = Alphabet.LATIN_LOWER;
+        int width = VectorCaesarKernel.SPECIES.length();
+        for (int len : LENGTHS) {
+            char[] src = sample(alphabet, len);
+            int done = kernel.apply(src, 0, len, new char[len], 0, alphabet.charAt(0), alphabet.length(), 3);
+            assertTrue(done >= 0 && done <= len, "длина " + len + ": обработано " + done);
+            assertEquals(0, done % width, "длина " + len + ": обработано " + done + " при ширине " + width);
+            assertTrue(len - done < width, "длина " + len + ": хвост " + (len - done) + " не короче вектора " + width);
+        }
+    }
+
+    @Test
+    void roundTripRestoresText() {
+        for (Alphabet alphabet : VECTORIZED) {
+            CaesarCipher vector = new CaesarCipher(alphabet, new VectorCaesarKernel());
+            char[] src = sample(alphabet, 1001);
+            char[] enc = new char[src.length];
+            char[] dec = new char[src.length];
+            for (int key = 0; key < alphabet.length(); key++) {
+                vector.transform(src, 0, src.length, enc, 0, key, false);
+                vector.transform(enc, 0, enc.length, dec, 0, key, true);
+                assertArrayEquals(src, dec, alphabet.id() + ", ключ " + key);
+            }
+        }
+    }
+
+    // Символы алфавита вперемешку с соседями диапазона, пробелами, цифрами и прочей кириллицей/латиницей
+    private static char[] sample(Alphabet alphabet, int len) {
+        int base = alphabet.charAt(0);
+        int n = alphabet.length();
+        char[] others = {' ', '.', '0', '9', 'A', 'Z', 'Ж', 'ё', '\n', (char) (base - 1), (char) (base + n)};
+        char[] text = new char[len];
+        for (int i = 0; i < len; i++) {
+            text[i] = i % 4 == 3 ? others[(i / 4) % others.length] : (char) (base + (i * 7) % n);
+        }
+        return text;
+    }
+}
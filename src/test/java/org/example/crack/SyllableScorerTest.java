@@ -0,0 +1,132 @@
+package org.example.crack;
+
+import org.example.cipher.Alphabet;
+import org.example.cipher.CaesarCipher;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Потоковый {@link SyllableScorer} должен давать те же оценки, что и исходная оценка на регулярном
+ * выражении и подстроках, для всех ключей — в том числе для мусора, получаемого неверными ключами.
+ */
+class SyllableScorerTest {
+
+    private static final int KEY = 17;
+
+    @Test
+    void matchesRegexScorerForEveryKey() throws IOException {
+        char[] ciphertext = encrypt(corpus());
+        CaesarCipher cipher = new CaesarCipher(Alphabet.RUSSIAN);
+        char[] plain = new char[ciphertext.length];
+        for (int key = 0; key < Alphabet.RUSSIAN.length(); key++) {
+            cipher.transform(ciphertext, 0, ciphertext.length, plain, 0, key, true);
+            SyllableScorer scorer = new SyllableScorer();
+            scorer.feed(plain, 0, plain.length);
+            assertEquals(RegexScorer.score(new String(plain)), scorer.score(), 0.0, "ключ " + key);
+        }
+    }
+
+    // Граница блока может прийтись на середину слова и серии гласных
+    @Test
+    void blockBoundariesDoNotChangeScore() throws IOException {
+        char[] text = corpus().toCharArray();
+        double expected = RegexScorer.score(new String(text));
+        for (int block : new int[]{1, 2, 3, 7, 64}) {
+            SyllableScorer scorer = new SyllableScorer();
+            for (int off = 0; off < text.length; off += block) {
+                scorer.feed(text, off, Math.min(block, text.length - off));
+            }
+            assertEquals(expected, scorer.score(), 0.0, "блок " + block);
+        }
+    }
+
+    @Test
+    void correctKeyScoresHighest() throws IOException {
+        char[] ciphertext = encrypt(corpus());
+        CaesarCipher cipher = new CaesarCipher(Alphabet.RUSSIAN);
+        char[] plain = new char[ciphertext.length];
+        int bestKey = -1;
+        double best = Double.NEGATIVE_INFINITY;
+        for (int key = 0; key < Alphabet.RUSSIAN.length(); key++) {
+            cipher.transform(ciphertext, 0, ciphertext.length, plain, 0, key, true);
+            SyllableScorer scorer = new SyllableScorer();
+            scorer.feed(plain, 0, plain.length);
+            if (scorer.score() > best) {
+                best = scorer.score();
+                bestKey = key;
+            }
+        }
+        assertEquals(KEY, bestKey);
+    }
+
+    private static char[] encrypt(String text) {
+        char[] src = text.toCharArray();
+        char[] dst = new char[src.length];
+        new CaesarCipher(Alphabet.RUSSIAN).transform(src, 0, src.length, dst, 0, KEY, false);
+        return dst;
+    }
+
+    private static String corpus() throws IOException {
+        try (InputStream in = SyllableScorerTest.class.getResourceAsStream("/corpus-ru.txt")) {
+            assertNotNull(in, "нет тестового корпуса corpus-ru.txt");
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Исходная реализация из BruteForceCracker до выделения SyllableScorer — эталон для сравнения
+    private static final class RegexScorer {
+
+        private static final Set<Character> VOWELS = Set.of(
+                'а', 'е', 'ё', 'и', 'о', 'у', 'ы', 'э', 'ю', 'я',
+                'А', 'Е', 'Ё', 'И', 'О', 'У', 'Ы', 'Э', 'Ю', 'Я'
+        );
+
+        private static final double PENALTY = 0.5;
+
+        static double score(String text) {
+            Matcher m = Pattern.compile("[А-ЯЁа-яё]+").matcher(text);
+            double totalSyllables = 0, totalBad = 0;
+            while (m.find()) {
+                String word = m.group();
+                List<String> sylls = splitToSyllables(word);
+                totalSyllables += sylls.size();
+
+                if (sylls.isEmpty()) totalBad += 1;
+            }
+            return totalSyllables - totalBad * PENALTY;
+        }
+
+        private static List<String> splitToSyllables(String word) {
+            List<String> result = new ArrayList<>();
+            int i = 0, n = word.length();
+            while (i < n) {
+
+                int start = i;
+                while (i < n && !VOWELS.contains(word.charAt(i))) i++;
+
+                int vcount = 0;
+                while (i < n && VOWELS.contains(word.charAt(i)) && vcount < 2) {
+                    i++; vcount++;
+                }
+                if (vcount == 0) {
+                    break;
+                }
+
+                while (i < n && !VOWELS.contains(word.charAt(i))) i++;
+                result.add(word.substring(start, i));
+            }
+            return result;
+        }
+    }
+}
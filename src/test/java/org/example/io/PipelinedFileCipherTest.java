@@ -0,0 +1,176 @@
+package org.example.io;
+
+import org.example.cipher.Alphabet;
+import org.example.cipher.CaesarCipher;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Возобновление конвейера с контрольной точки. Убитый процесс имитирует отдельная JVM, которая
+ * останавливается через {@link Runtime#halt} посреди работы: без finally и без последней точки,
+ * с записями, успевшими дойти до выхода уже после неё.
+ */
+class PipelinedFileCipherTest {
+
+    private static final int KEY = 11;
+    private static final int BLOCK_SIZE = 4096;
+    private static final int RING_SIZE = 4;
+    private static final long CHECKPOINT_INTERVAL = 64 * 1024;
+
+    // Кириллица и пунктуация в UTF-8: у алфавита ru символы разной длины, смещения входа и выхода расходятся
+    private static final String SYMBOLS = "абвгдежзиклмнопрстуфхцчшщъыьэя.,«»!? \n";
+
+    @Test
+    void resumesAfterKillWithWritesPastTheCheckpoint() throws Exception {
+        Path dir = Files.createTempDirectory("pipeline-test");
+        try {
+            Path input = sample(dir, 2_000_000);
+            Path output = dir.resolve("out.txt");
+            Path checkpoint = PipelinedFileCipher.defaultCheckpoint(output);
+
+            long haltAt = Files.size(input) / 2;
+            Process job = new ProcessBuilder(javaCommand(input, output, haltAt)).inheritIO().start();
+            assertTrue(job.waitFor(2, TimeUnit.MINUTES), "задача не остановилась");
+            assertEquals(Job.HALTED, job.exitValue(), "код выхода задачи");
+            assertTrue(Files.exists(checkpoint), "после остановки нет контрольной точки");
+
+            PipelineReport report = pipeline().transform(input, output, checkpoint, KEY, false, done -> { });
+            assertTrue(report.resumedFrom() > 0, "работа начата заново, а не продолжена");
+            assertArrayEquals(expected(input, dir), Files.readAllBytes(output));
+            assertTrue(Files.notExists(checkpoint), "контрольная точка не удалена");
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    void restartsWhenCommittedOutputWasChanged() throws Exception {
+        Path dir = Files.createTempDirectory("pipeline-test");
+        try {
+            Path input = sample(dir, 500_000);
+            Path output = dir.resolve("out.txt");
+            Path checkpoint = PipelinedFileCipher.defaultCheckpoint(output);
+            long stopAt = Files.size(input) / 2;
+            try {
+                pipeline().transform(input, output, checkpoint, KEY, false, done -> {
+                    if (done > stopAt) {
+                        throw new IllegalStateException("стоп");
+                    }
+                });
+            } catch (IllegalStateException expected) {
+                // работа прервана, контрольная точка записана
+            }
+            assertTrue(Files.exists(checkpoint), "после сбоя нет контрольной точки");
+
+            // правка внутри уже зафиксированной части выхода
+            byte[] damaged = Files.readAllBytes(output);
+            damaged[10] ^= 1;
+            Files.write(output, damaged);
+
+            PipelineReport report = pipeline().transform(input, output, checkpoint, KEY, false, done -> { });
+            assertEquals(0, report.resumedFrom(), "изменённый выход не должен продолжаться");
+            assertArrayEquals(expected(input, dir), Files.readAllBytes(output));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    void malformedLeadByteAtBlockEndDoesNotStopTheBlock() throws Exception {
+        Path dir = Files.createTempDirectory("pipeline-test");
+        try {
+            // в конце каждого блока — ведущий байт без продолжения и за ним целая «а»: блок нельзя
+            // обрывать на таком байте. Первые 64 КБ целы, чтобы кодировка определилась как UTF-8
+            Path input = sample(dir, 400_000);
+            byte[] bytes = Files.readAllBytes(input);
+            byte[] tail = {(byte) 0xF0, (byte) 0xD0, (byte) 0xB0};
+            for (int end = 20 * BLOCK_SIZE; end < bytes.length; end += BLOCK_SIZE) {
+                System.arraycopy(tail, 0, bytes, end - tail.length, tail.length);
+            }
+            Files.write(input, bytes);
+            Path output = dir.resolve("out.txt");
+
+            pipeline().transform(input, output, KEY, false);
+            assertArrayEquals(expected(input, dir), Files.readAllBytes(output));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    // Задача в отдельной JVM: останавливается, как от kill -9, когда обработана половина и есть точка
+    static final class Job {
+        static final int HALTED = 137;
+
+        public static void main(String[] args) throws IOException {
+            Path output = Path.of(args[1]);
+            Path checkpoint = PipelinedFileCipher.defaultCheckpoint(output);
+            long haltAt = Long.parseLong(args[2]);
+            pipeline().transform(Path.of(args[0]), output, checkpoint, KEY, false, done -> {
+                if (done >= haltAt && Files.exists(checkpoint)) {
+                    Runtime.getRuntime().halt(HALTED);
+                }
+            });
+            System.exit(0);
+        }
+    }
+
+    private static PipelinedFileCipher pipeline() {
+        return new PipelinedFileCipher(new TextFileCipher(new CaesarCipher(Alphabet.RUSSIAN)), BLOCK_SIZE, RING_SIZE,
+                CHECKPOINT_INTERVAL);
+    }
+
+    private static List<String> javaCommand(Path input, Path output, long haltAt) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            cmd.add("--add-modules");
+            cmd.add("jdk.incubator.vector");
+        }
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(Job.class.getName());
+        cmd.add(input.toString());
+        cmd.add(output.toString());
+        cmd.add(Long.toString(haltAt));
+        return cmd;
+    }
+
+    private static Path sample(Path dir, int chars) throws IOException {
+        Random random = new Random(24);
+        StringBuilder text = new StringBuilder(chars);
+        for (int i = 0; i < chars; i++) {
+            text.append(SYMBOLS.charAt(random.nextInt(SYMBOLS.length())));
+        }
+        Path input = dir.resolve("in.txt");
+        Files.writeString(input, text, StandardCharsets.UTF_8);
+        return input;
+    }
+
+    private static byte[] expected(Path input, Path dir) throws IOException {
+        Path reference = dir.resolve("reference.txt");
+        new TextFileCipher(new CaesarCipher(Alphabet.RUSSIAN)).transform(input, reference, KEY, false);
+        return Files.readAllBytes(reference);
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}